@@ -37,6 +37,7 @@ import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.DeviceRes
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OsgpRequestMessageSender;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OsgpResponseMessageListener;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OslpLogItemRequestMessageSender;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OslpLogItemRequestMessageSender.OverflowPolicy;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.SigningServerRequestMessageSender;
 import com.alliander.osgp.shared.application.config.AbstractMessagingConfig;
 import com.alliander.osgp.shared.application.config.jms.JmsConfiguration;
@@ -65,6 +66,13 @@ public class MessagingConfig extends AbstractMessagingConfig {
     // JMS Settings: incoming signing server responses
     private static final String PROPERTY_NAME_JMS_SIGNING_SERVER_RESPONSES_QUEUE = "jms.signing.server.responses.queue";
 
+    // JMS Settings: asynchronous sending of OSLP log items
+    private static final String PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_QUEUE_CAPACITY = "jms.oslp.log.item.requests.queue.capacity";
+    private static final String PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_BATCH_SIZE = "jms.oslp.log.item.requests.batch.size";
+    private static final String PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_PUBLISH_INTERVAL = "jms.oslp.log.item.requests.publish.interval";
+    private static final String PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_OVERFLOW_POLICY = "jms.oslp.log.item.requests.overflow.policy";
+    private static final String PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_COMPACT = "jms.oslp.log.item.requests.compact";
+
     @Resource
     private Environment environment;
 
@@ -146,9 +154,21 @@ public class MessagingConfig extends AbstractMessagingConfig {
         return oslpLogItemRequestJmsConfiguration.getJmsTemplate();
     }
 
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     public OslpLogItemRequestMessageSender oslpLogItemRequestMessageSender() {
-        return new OslpLogItemRequestMessageSender();
+        final int queueCapacity = Integer.parseInt(
+                this.environment.getProperty(PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_QUEUE_CAPACITY, "0"));
+        final int batchSize = Integer
+                .parseInt(this.environment.getProperty(PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_BATCH_SIZE, "100"));
+        final long publishInterval = Long.parseLong(
+                this.environment.getProperty(PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_PUBLISH_INTERVAL, "100"));
+        final OverflowPolicy overflowPolicy = OverflowPolicy.valueOf(
+                this.environment.getProperty(PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_OVERFLOW_POLICY, "DROP_NEWEST"));
+        final boolean compact = Boolean
+                .parseBoolean(this.environment.getProperty(PROPERTY_NAME_JMS_OSLP_LOG_ITEM_REQUESTS_COMPACT, "false"));
+
+        return new OslpLogItemRequestMessageSender(queueCapacity, batchSize, publishInterval, overflowPolicy,
+                compact);
     }
 
     // === OSGP REQUESTS ===
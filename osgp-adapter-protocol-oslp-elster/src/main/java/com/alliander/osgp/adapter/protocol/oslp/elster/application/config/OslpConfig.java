@@ -7,8 +7,11 @@
  */
 package com.alliander.osgp.adapter.protocol.oslp.elster.application.config;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
+import java.security.PrivateKey;
+
+import javax.annotation.PostConstruct;
 
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.bootstrap.ServerBootstrap;
@@ -19,10 +22,13 @@ import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.jboss.netty.handler.logging.LoggingHandler;
 import org.jboss.netty.logging.InternalLogLevel;
 import org.jboss.netty.logging.InternalLoggerFactory;
 import org.jboss.netty.logging.Slf4JLoggerFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -30,15 +36,31 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.PropertySources;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.jmx.support.RegistrationPolicy;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.EmbeddedOslpSigner;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.JmsOslpSigner;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpDeviceCache;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSequenceNumberStore;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSigner;
 import com.alliander.osgp.adapter.protocol.oslp.elster.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpChannelHandlerClient;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpChannelHandlerServer;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpChannelRegistry;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpDeviceRequestDispatcher;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpPublicKeyCache;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpResponseTimeouts;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpSecurityHandler;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpThreadPools;
 import com.alliander.osgp.oslp.OslpDecoder;
 import com.alliander.osgp.oslp.OslpEncoder;
+import com.alliander.osgp.oslp.OslpUtils;
 import com.alliander.osgp.shared.application.config.AbstractConfig;
+import com.alliander.osgp.shared.exceptionhandling.EncrypterException;
+import com.alliander.osgp.shared.security.CertificateHelper;
 
 /**
  * An application context Java configuration class. The usage of Java
@@ -56,24 +78,67 @@ public class OslpConfig extends AbstractConfig {
 
     private static final String PROPERTY_NAME_OSLP_PORT_SERVER = "oslp.port.server";
 
+    private static final String PROPERTY_NAME_OSLP_CONNECTION_REUSE = "oslp.connection.reuse";
+    private static final String PROPERTY_NAME_OSLP_CONNECTION_IDLE_TIMEOUT = "oslp.connection.idle.timeout";
+    private static final String PROPERTY_NAME_OSLP_SERVER_RESPONSE_TIMEOUT = "oslp.server.response.timeout";
+    private static final String PROPERTY_NAME_OSLP_TIMEOUT_RESPONSE = "oslp.timeout.response";
+    private static final String PROPERTY_NAME_OSLP_TIMEOUT_RESPONSE_BY_MESSAGE_TYPE = "oslp.timeout.response.by.message.type";
+    private static final String PROPERTY_NAME_OSLP_DEVICE_QUEUE_SIZE = "oslp.device.queue.size";
+    private static final String PROPERTY_NAME_OSLP_DEVICE_QUEUE_RELEASE_TIMEOUT = "oslp.device.queue.release.timeout";
+
+    private static final String PROPERTY_NAME_OSLP_WORKER_COUNT = "oslp.worker.count";
+    private static final String PROPERTY_NAME_OSLP_EXECUTION_POOL_SIZE = "oslp.execution.pool.size";
+    private static final String PROPERTY_NAME_OSLP_EXECUTION_MAX_CHANNEL_MEMORY = "oslp.execution.max.channel.memory";
+    private static final String PROPERTY_NAME_OSLP_EXECUTION_MAX_TOTAL_MEMORY = "oslp.execution.max.total.memory";
+
     private static final String PROPERTY_NAME_OSLP_SECURITY_KEYTYPE = "oslp.security.keytype";
     private static final String PROPERTY_NAME_OSLP_SECURITY_SIGNATURE = "oslp.security.signature";
     private static final String PROPERTY_NAME_OSLP_SECURITY_PROVIDER = "oslp.security.provider";
+    private static final String PROPERTY_NAME_OSLP_SECURITY_ENGINE_CACHE = "oslp.security.engine.cache";
+    private static final String PROPERTY_NAME_OSLP_SECURITY_PUBLIC_KEY_CACHE_SIZE = "oslp.security.public.key.cache.size";
+    private static final String PROPERTY_NAME_OSLP_SECURITY_PUBLIC_KEY_CACHE_TTL = "oslp.security.public.key.cache.ttl";
+    private static final String PROPERTY_NAME_OSLP_DEVICE_CACHE_SIZE = "oslp.device.cache.size";
+    private static final String PROPERTY_NAME_OSLP_DEVICE_CACHE_TTL = "oslp.device.cache.ttl";
+    private static final String PROPERTY_NAME_OSLP_SIGNING_MODE = "oslp.signing.mode";
+    private static final String PROPERTY_NAME_OSLP_SIGNING_EMBEDDED_SIGNKEY_PATH = "oslp.signing.embedded.signkey.path";
+    private static final String PROPERTY_NAME_OSLP_SIGNING_BATCH_SIZE = "oslp.signing.batch.size";
+    private static final String PROPERTY_NAME_OSLP_SIGNING_BATCH_WINDOW = "oslp.signing.batch.window";
     private static final String PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_WINDOW = "oslp.sequence.number.window";
     private static final String PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_MAXIMUM = "oslp.sequence.number.maximum";
+    private static final String PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_FLUSH_INTERVAL = "oslp.sequence.number.flush.interval";
+    private static final String PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_FLUSH_BATCH_SIZE = "oslp.sequence.number.flush.batch.size";
 
     private static final String PROPERTY_NAME_OSLP_EXECUTE_RESUME_SCHEDULE_AFTER_SET_LIGHT = "oslp.execute.resume.schedule.after.set.light";
 
     private static final String PROPERTY_NAME_OSLP_DEFAULT_LATITUDE = "oslp.default.latitude";
     private static final String PROPERTY_NAME_OSLP_DEFAULT_LONGITUDE = "oslp.default.longitude";
 
+    private static final String SIGNING_MODE_EMBEDDED = "embedded";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(OslpConfig.class);
 
-    @Bean(destroyMethod = "releaseExternalResources")
+    /**
+     * Enables or disables the per thread reuse of signature and digest engines
+     * in {@link OslpUtils}, which is static state shared by the adapter.
+     */
+    @PostConstruct
+    public void configureCryptoEngineCache() {
+        final boolean enabled = Boolean
+                .parseBoolean(this.environment.getProperty(PROPERTY_NAME_OSLP_SECURITY_ENGINE_CACHE, "true"));
+        LOGGER.info("Crypto engine cache enabled: {}", enabled);
+        OslpUtils.setCryptoEngineCacheEnabled(enabled);
+    }
+
+    /**
+     * The bootstraps share the pools of {@link #oslpThreadPools()}, which are
+     * released by that bean only. Shutting down or releasing a bootstrap
+     * would stop the workers under the channels of the other bootstrap.
+     */
+    @Bean(destroyMethod = "")
     public ClientBootstrap clientBootstrap() {
         InternalLoggerFactory.setDefaultFactory(new Slf4JLoggerFactory());
-        final ChannelFactory factory = new NioClientSocketChannelFactory(Executors.newCachedThreadPool(),
-                Executors.newCachedThreadPool());
+        final ChannelFactory factory = new NioClientSocketChannelFactory(this.oslpThreadPools().getClientBossPool(),
+                this.oslpThreadPools().getWorkerPool());
 
         final ChannelPipelineFactory pipelineFactory = new ChannelPipelineFactory() {
             @Override
@@ -98,10 +163,10 @@ public class OslpConfig extends AbstractConfig {
         return bootstrap;
     }
 
-    @Bean(destroyMethod = "releaseExternalResources")
+    @Bean(destroyMethod = "")
     public ServerBootstrap serverBootstrap() {
-        final ChannelFactory factory = new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
-                Executors.newCachedThreadPool());
+        final ChannelFactory factory = new NioServerSocketChannelFactory(this.oslpThreadPools().getServerBossPool(),
+                this.oslpThreadPools().getWorkerPool());
 
         final ServerBootstrap bootstrap = new ServerBootstrap(factory);
 
@@ -130,8 +195,11 @@ public class OslpConfig extends AbstractConfig {
 
         pipeline.addLast("loggingHandler", new LoggingHandler(InternalLogLevel.INFO, false));
 
-        pipeline.addLast("oslpEncoder", new OslpEncoder());
+        pipeline.addLast("oslpEncoder", this.oslpEncoder());
         pipeline.addLast("oslpDecoder", new OslpDecoder(this.oslpSignature(), this.oslpSignatureProvider()));
+        // Hand off decoded messages to the execution pool, so database access
+        // and signature validation do not block the I/O worker threads.
+        pipeline.addLast("oslpExecution", this.oslpExecutionHandler());
         pipeline.addLast("oslpSecurity", this.oslpSecurityHandler());
 
         pipeline.addLast("oslpChannelHandler", handler);
@@ -139,11 +207,66 @@ public class OslpConfig extends AbstractConfig {
         return pipeline;
     }
 
+    /**
+     * Boss, worker and execution threads shared by the client and server
+     * bootstraps.
+     */
+    @Bean(destroyMethod = "releaseExternalResources")
+    public OslpThreadPools oslpThreadPools() {
+        final int workerCount = Integer.parseInt(this.environment.getProperty(PROPERTY_NAME_OSLP_WORKER_COUNT, "0"));
+        final int poolSize = Integer
+                .parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_EXECUTION_POOL_SIZE));
+        final long maxChannelMemory = Long
+                .parseLong(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_EXECUTION_MAX_CHANNEL_MEMORY));
+        final long maxTotalMemory = Long
+                .parseLong(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_EXECUTION_MAX_TOTAL_MEMORY));
+
+        LOGGER.info("Created OSLP execution pool with pool size: {}, max channel memory: {}, max total memory: {}",
+                poolSize, maxChannelMemory, maxTotalMemory);
+
+        return new OslpThreadPools(workerCount, this.oslpTimer(), poolSize, maxChannelMemory, maxTotalMemory);
+    }
+
+    /**
+     * Execution handler which keeps the order of events per channel, with a
+     * bounded number of threads and a limit on the memory of queued events per
+     * channel and in total. Its executor is terminated by
+     * {@link #oslpThreadPools()}.
+     */
+    @Bean
+    public ExecutionHandler oslpExecutionHandler() {
+        return new ExecutionHandler(this.oslpThreadPools().getExecutionExecutor());
+    }
+
+    /**
+     * Encoder shared by all pipelines. Frames are heap buffers, which the
+     * payload is serialized into in place; the send buffer pool of Netty
+     * copies them into pooled direct memory when writing to the socket.
+     */
+    @Bean
+    public OslpEncoder oslpEncoder() {
+        return new OslpEncoder();
+    }
+
     @Bean
     public OslpSecurityHandler oslpSecurityHandler() {
         return new OslpSecurityHandler();
     }
 
+    @Bean
+    public OslpPublicKeyCache oslpPublicKeyCache() {
+        return new OslpPublicKeyCache(
+                Long.parseLong(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_SECURITY_PUBLIC_KEY_CACHE_SIZE)),
+                Long.parseLong(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_SECURITY_PUBLIC_KEY_CACHE_TTL)));
+    }
+
+    @Bean
+    public OslpDeviceCache oslpDeviceCache() {
+        return new OslpDeviceCache(
+                Long.parseLong(this.environment.getProperty(PROPERTY_NAME_OSLP_DEVICE_CACHE_SIZE, "10000")),
+                Long.parseLong(this.environment.getProperty(PROPERTY_NAME_OSLP_DEVICE_CACHE_TTL, "60000")));
+    }
+
     @Bean
     public OslpDecoder oslpDecoder() throws ProtocolAdapterException {
         return new OslpDecoder(this.oslpSignature(), this.oslpSignatureProvider());
@@ -184,6 +307,66 @@ public class OslpConfig extends AbstractConfig {
         return Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_PORT_SERVER));
     }
 
+    /**
+     * Timer for connection and response timeouts of OSLP channels.
+     */
+    @Bean(destroyMethod = "stop")
+    public Timer oslpTimer() {
+        return new HashedWheelTimer();
+    }
+
+    @Bean
+    public boolean oslpConnectionReuse() {
+        return Boolean.parseBoolean(this.environment.getProperty(PROPERTY_NAME_OSLP_CONNECTION_REUSE, "false"));
+    }
+
+    @Bean
+    public int oslpConnectionIdleTimeout() {
+        return Integer.parseInt(this.environment.getProperty(PROPERTY_NAME_OSLP_CONNECTION_IDLE_TIMEOUT, "5000"));
+    }
+
+    /**
+     * Sends requests to devices, one request at a time per device.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public OslpDeviceRequestDispatcher oslpDeviceRequestDispatcher() {
+        return new OslpDeviceRequestDispatcher(
+                Integer.parseInt(this.environment.getProperty(PROPERTY_NAME_OSLP_DEVICE_QUEUE_SIZE, "100")),
+                Long.parseLong(
+                        this.environment.getProperty(PROPERTY_NAME_OSLP_DEVICE_QUEUE_RELEASE_TIMEOUT, "120000")));
+    }
+
+    /**
+     * Exports the counters of the beans annotated with @ManagedResource over
+     * JMX. Other beans are not exported, even when they are MBeans.
+     */
+    @Bean
+    public AnnotationMBeanExporter oslpMBeanExporter() {
+        final AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+        exporter.setAutodetectMode(MBeanExporter.AUTODETECT_ASSEMBLER);
+        exporter.setRegistrationPolicy(RegistrationPolicy.REPLACE_EXISTING);
+        return exporter;
+    }
+
+    /**
+     * Channels of device initiated connections waiting for a signed response.
+     */
+    @Bean
+    public OslpChannelRegistry oslpChannelRegistry() {
+        return new OslpChannelRegistry(
+                Long.parseLong(this.environment.getProperty(PROPERTY_NAME_OSLP_SERVER_RESPONSE_TIMEOUT, "60000")));
+    }
+
+    /**
+     * Time devices get to respond to requests sent by the adapter.
+     */
+    @Bean
+    public OslpResponseTimeouts oslpResponseTimeouts() {
+        return new OslpResponseTimeouts(
+                Long.parseLong(this.environment.getProperty(PROPERTY_NAME_OSLP_TIMEOUT_RESPONSE, "30000")),
+                this.environment.getProperty(PROPERTY_NAME_OSLP_TIMEOUT_RESPONSE_BY_MESSAGE_TYPE, ""));
+    }
+
     @Bean
     public OslpChannelHandlerServer oslpChannelHandlerServer() {
         return new OslpChannelHandlerServer();
@@ -194,6 +377,40 @@ public class OslpConfig extends AbstractConfig {
         return new OslpChannelHandlerClient();
     }
 
+    // === Signing config ===
+
+    /**
+     * Signer for OSLP envelopes, either the signing server using JMS (default)
+     * or embedded signing using a private key available to this adapter.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public OslpSigner oslpSigner() throws ProtocolAdapterException {
+        final String signingMode = this.environment.getProperty(PROPERTY_NAME_OSLP_SIGNING_MODE, "jms");
+        LOGGER.info("Using OSLP signing mode: {}", signingMode);
+
+        if (!SIGNING_MODE_EMBEDDED.equalsIgnoreCase(signingMode)) {
+            final int batchSize = Integer
+                    .parseInt(this.environment.getProperty(PROPERTY_NAME_OSLP_SIGNING_BATCH_SIZE, "1"));
+            final long batchWindow = Long
+                    .parseLong(this.environment.getProperty(PROPERTY_NAME_OSLP_SIGNING_BATCH_WINDOW, "0"));
+            LOGGER.info("Signing batch size: {}, batch window: {} ms", batchSize, batchWindow);
+            return new JmsOslpSigner(batchSize, batchWindow);
+        }
+
+        final PrivateKey privateKey;
+        try {
+            privateKey = CertificateHelper.createPrivateKey(
+                    this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_SIGNING_EMBEDDED_SIGNKEY_PATH),
+                    this.oslpKeyType(), this.oslpSignatureProvider());
+        } catch (EncrypterException | IOException e) {
+            final String msg = "Error creating private key for embedded signing";
+            LOGGER.error(msg, e);
+            throw new ProtocolAdapterException(msg, e);
+        }
+
+        return new EmbeddedOslpSigner(privateKey, this.oslpSignature(), this.oslpSignatureProvider());
+    }
+
     // === Sequence number config ===
 
     @Bean
@@ -208,6 +425,17 @@ public class OslpConfig extends AbstractConfig {
         return Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_MAXIMUM));
     }
 
+    /**
+     * Sequence numbers of devices, written to the database in the background.
+     */
+    @Bean
+    public OslpSequenceNumberStore oslpSequenceNumberStore() {
+        return new OslpSequenceNumberStore(this.sequenceNumberWindow(), this.sequenceNumberMaximum(),
+                Long.parseLong(this.environment.getProperty(PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_FLUSH_INTERVAL, "1000")),
+                Integer.parseInt(
+                        this.environment.getProperty(PROPERTY_NAME_OSLP_SEQUENCE_NUMBER_FLUSH_BATCH_SIZE, "500")));
+    }
+
     @Bean
     public boolean executeResumeScheduleAfterSetLight() {
         return Boolean.parseBoolean(
@@ -27,6 +27,7 @@ import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevic
 import com.alliander.osgp.adapter.protocol.oslp.elster.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.DeviceResponseMessageSender;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OsgpRequestMessageSender;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpPublicKeyCache;
 import com.alliander.osgp.dto.valueobjects.DeviceFunctionDto;
 import com.alliander.osgp.dto.valueobjects.EventNotificationDto;
 import com.alliander.osgp.dto.valueobjects.EventTypeDto;
@@ -52,6 +53,9 @@ public class DeviceManagementService {
     @Autowired
     private OsgpRequestMessageSender osgpRequestMessageSender;
 
+    @Autowired
+    private OslpPublicKeyCache oslpPublicKeyCache;
+
     /**
      * Constructor
      */
@@ -164,6 +168,7 @@ public class DeviceManagementService {
 
             oslpDevice.updatePublicKey(publicKey);
             this.oslpDeviceSettingsService.updateDevice(oslpDevice);
+            this.oslpPublicKeyCache.invalidateAfterCommit(deviceIdentification, oslpDevice.getDeviceUid());
 
             this.sendResponseMessage(domain, domainVersion, messageType, correlationUid, organisationIdentification,
                     deviceIdentification, ResponseMessageResultType.OK, null, responseMessageSender);
@@ -196,6 +201,7 @@ public class DeviceManagementService {
 
             oslpDevice.revokePublicKey();
             this.oslpDeviceSettingsService.updateDevice(oslpDevice);
+            this.oslpPublicKeyCache.invalidateAfterCommit(deviceIdentification, oslpDevice.getDeviceUid());
 
             this.sendResponseMessage(domain, domainVersion, messageType, correlationUid, organisationIdentification,
                     deviceIdentification, ResponseMessageResultType.OK, null, responseMessageSender);
@@ -17,6 +17,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpDeviceSettingsService;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSequenceNumberStore;
 import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
 import com.alliander.osgp.adapter.protocol.oslp.elster.exceptions.ProtocolAdapterException;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OsgpRequestMessageSender;
@@ -38,6 +39,9 @@ public class DeviceRegistrationService {
     @Autowired
     private OslpDeviceSettingsService oslpDeviceSettingsService;
 
+    @Autowired
+    private OslpSequenceNumberStore oslpSequenceNumberStore;
+
     @Autowired
     private OsgpRequestMessageSender osgpRequestMessageSender;
 
@@ -115,13 +119,16 @@ public class DeviceRegistrationService {
             throws ProtocolAdapterException {
 
         // Lookup device.
-        final OslpDevice oslpDevice = this.findDevice(deviceId);
-
-        this.checkSequenceNumber(oslpDevice.getSequenceNumber(), newSequenceNumber);
-
-        // Persist the new sequence number.
-        oslpDevice.setSequenceNumber(newSequenceNumber);
-        this.oslpDeviceSettingsService.updateDevice(oslpDevice);
+        final String deviceIdentification = this.findDevice(deviceId).getDeviceIdentification();
+
+        // Check and update the sequence number atomically, the store writes
+        // it to the database later on.
+        Integer currentSequenceNumber;
+        do {
+            currentSequenceNumber = this.oslpSequenceNumberStore.getSequenceNumber(deviceIdentification);
+            this.checkSequenceNumber(currentSequenceNumber, newSequenceNumber);
+        } while (!this.oslpSequenceNumberStore.compareAndSet(deviceIdentification, currentSequenceNumber,
+                newSequenceNumber));
     }
 
     public void checkSequenceNumber(final byte[] deviceId, final Integer newSequenceNumber)
@@ -130,7 +137,9 @@ public class DeviceRegistrationService {
         // Lookup device.
         final OslpDevice oslpDevice = this.findDevice(deviceId);
 
-        this.checkSequenceNumber(oslpDevice.getSequenceNumber(), newSequenceNumber);
+        this.checkSequenceNumber(
+                this.oslpSequenceNumberStore.getSequenceNumber(oslpDevice.getDeviceIdentification()),
+                newSequenceNumber);
     }
 
     public void checkSequenceNumber(final Integer currentSequenceNumber, final Integer newSequenceNumber)
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp;
+
+import java.security.PrivateKey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.alliander.osgp.oslp.OslpEnvelope;
+import com.alliander.osgp.oslp.SignedOslpEnvelopeDto;
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
+import com.alliander.osgp.shared.exceptionhandling.ComponentType;
+import com.alliander.osgp.shared.exceptionhandling.OsgpException;
+import com.alliander.osgp.shared.infra.jms.ResponseMessage;
+import com.alliander.osgp.shared.infra.jms.ResponseMessageResultType;
+
+/**
+ * Signs envelopes within the protocol adapter using a locally configured
+ * private key, the same way the signing server does, without the round trip
+ * over the message broker.
+ */
+public class EmbeddedOslpSigner implements OslpSigner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedOslpSigner.class);
+
+    private final PrivateKey privateKey;
+    private final String signature;
+    private final String signatureProvider;
+
+    @Autowired
+    private OslpSigningService oslpSigningService;
+
+    public EmbeddedOslpSigner(final PrivateKey privateKey, final String signature, final String signatureProvider) {
+        this.privateKey = privateKey;
+        this.signature = signature;
+        this.signatureProvider = signatureProvider;
+    }
+
+    @Override
+    public void sign(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto, final String correlationUid,
+            final String organisationIdentification, final String deviceIdentification) {
+
+        final OslpEnvelope oslpEnvelope;
+        try {
+            oslpEnvelope = new OslpEnvelope.Builder().withDeviceId(unsignedOslpEnvelopeDto.getDeviceId())
+                    .withSequenceNumber(unsignedOslpEnvelopeDto.getSequenceNumber()).withPrimaryKey(this.privateKey)
+                    .withSignature(this.signature).withProvider(this.signatureProvider)
+                    .withPayloadMessage(unsignedOslpEnvelopeDto.getPayloadMessage()).build();
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error("Message for device: {} with correlationId: {} NOT SIGNED", deviceIdentification,
+                    correlationUid, e);
+
+            final ResponseMessage responseMessage = ResponseMessage.newResponseMessageBuilder()
+                    .withCorrelationUid(correlationUid).withOrganisationIdentification(organisationIdentification)
+                    .withDeviceIdentification(deviceIdentification).withResult(ResponseMessageResultType.NOT_OK)
+                    .withOsgpException(
+                            new OsgpException(ComponentType.PROTOCOL_OSLP, "Failed to build signed OslpEnvelope", e))
+                    .withDataObject(unsignedOslpEnvelopeDto).build();
+            this.oslpSigningService.handleError(deviceIdentification, responseMessage);
+            return;
+        }
+
+        LOGGER.debug("Message for device: {} with correlationId: {} signed", deviceIdentification, correlationUid);
+
+        this.oslpSigningService.handleSignedOslpEnvelope(
+                new SignedOslpEnvelopeDto(oslpEnvelope, unsignedOslpEnvelopeDto), deviceIdentification);
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing to release, envelopes are signed on the calling thread.
+    }
+}
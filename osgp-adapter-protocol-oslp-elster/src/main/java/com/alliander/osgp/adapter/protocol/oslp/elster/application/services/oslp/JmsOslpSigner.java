@@ -0,0 +1,200 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.SigningServerRequestMessageSender;
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeBatchDto;
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
+import com.alliander.osgp.shared.exceptionhandling.ComponentType;
+import com.alliander.osgp.shared.exceptionhandling.OsgpException;
+import com.alliander.osgp.shared.infra.jms.RequestMessage;
+import com.alliander.osgp.shared.infra.jms.ResponseMessage;
+import com.alliander.osgp.shared.infra.jms.ResponseMessageResultType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Has envelopes signed by the signing server. The signed envelope is received
+ * by the SigningServerResponsesMessageListener.
+ *
+ * When a batch size larger than one is configured, envelopes of OSLP requests
+ * are collected and sent to the signing server as one batch message, as soon
+ * as the batch is full or the batch window has passed since the first
+ * envelope of the batch was collected. Envelopes of OSLP responses are always
+ * sent immediately, as the device is waiting for them on an open channel. When
+ * a batch can not be sent, each of its requests is handed to
+ * {@link OslpSigningService#handleError}, so the platform gets a NOT_OK
+ * response for it.
+ */
+public class JmsOslpSigner implements OslpSigner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmsOslpSigner.class);
+
+    private static final String SIGNING_REQUEST_MESSAGE_TYPE = "SIGNING_REQUEST";
+
+    private static final String BATCH_IDENTIFICATION = "batch";
+
+    private final int batchSize;
+    private final long batchWindow;
+    private final ScheduledExecutorService batchFlushExecutor;
+
+    private final Object batchLock = new Object();
+    private List<RequestMessage> batch = new ArrayList<>();
+
+    @Autowired
+    private SigningServerRequestMessageSender signingServerRequestMessageSender;
+
+    @Autowired
+    private OslpSigningService oslpSigningService;
+
+    public JmsOslpSigner() {
+        this(1, 0);
+    }
+
+    /**
+     * @param batchSize
+     *            maximum number of envelopes per batch, 1 disables batching.
+     * @param batchWindow
+     *            maximum time in milliseconds an envelope waits for the batch
+     *            to fill up.
+     */
+    public JmsOslpSigner(final int batchSize, final long batchWindow) {
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+        this.batchFlushExecutor = batchSize > 1 ? Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("oslp-signing-batch-%d").setDaemon(true).build()) : null;
+    }
+
+    @Override
+    public void sign(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto, final String correlationUid,
+            final String organisationIdentification, final String deviceIdentification) {
+
+        final RequestMessage requestMessage = new RequestMessage(correlationUid, organisationIdentification,
+                deviceIdentification, unsignedOslpEnvelopeDto);
+
+        if (this.batchSize <= 1
+                || UnsignedOslpEnvelopeDto.OSLP_RESPONSE_TYPE.equals(unsignedOslpEnvelopeDto.getType())) {
+            this.send(requestMessage);
+            return;
+        }
+
+        List<RequestMessage> fullBatch = null;
+        boolean firstOfBatch = false;
+        synchronized (this.batchLock) {
+            this.batch.add(requestMessage);
+            if (this.batch.size() >= this.batchSize) {
+                fullBatch = this.batch;
+                this.batch = new ArrayList<>();
+            } else {
+                firstOfBatch = this.batch.size() == 1;
+            }
+        }
+
+        if (fullBatch != null) {
+            this.sendBatch(fullBatch);
+        } else if (firstOfBatch) {
+            this.batchFlushExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    JmsOslpSigner.this.flush();
+                }
+            }, this.batchWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send the collected envelopes to the signing server, without waiting for
+     * the batch to fill up.
+     */
+    public void flush() {
+        final List<RequestMessage> pendingBatch;
+        synchronized (this.batchLock) {
+            if (this.batch.isEmpty()) {
+                return;
+            }
+            pendingBatch = this.batch;
+            this.batch = new ArrayList<>();
+        }
+
+        this.sendBatch(pendingBatch);
+    }
+
+    /**
+     * Stops the batch window timer and sends the remaining envelopes. Called
+     * by Spring when the application context is closed.
+     */
+    @Override
+    public void shutdown() {
+        if (this.batchFlushExecutor != null) {
+            this.batchFlushExecutor.shutdown();
+        }
+        this.flush();
+    }
+
+    /**
+     * Send a batch, reporting an error for each of its requests when the batch
+     * can not be sent.
+     */
+    private void sendBatch(final List<RequestMessage> requestMessages) {
+        try {
+            this.send(requestMessages);
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to send batch of {} signing requests", requestMessages.size(), e);
+            for (final RequestMessage requestMessage : requestMessages) {
+                this.handleSendError(requestMessage, e);
+            }
+        }
+    }
+
+    private void handleSendError(final RequestMessage requestMessage, final RuntimeException e) {
+        final ResponseMessage responseMessage = ResponseMessage.newResponseMessageBuilder()
+                .withCorrelationUid(requestMessage.getCorrelationUid())
+                .withOrganisationIdentification(requestMessage.getOrganisationIdentification())
+                .withDeviceIdentification(requestMessage.getDeviceIdentification())
+                .withResult(ResponseMessageResultType.NOT_OK)
+                .withOsgpException(new OsgpException(ComponentType.PROTOCOL_OSLP,
+                        "Failed to send signing request to signing server", e))
+                .withDataObject(requestMessage.getRequest()).build();
+        try {
+            this.oslpSigningService.handleError(requestMessage.getDeviceIdentification(), responseMessage);
+        } catch (final RuntimeException handleErrorException) {
+            LOGGER.error("Unable to report signing failure for device: {} with correlationId: {}",
+                    requestMessage.getDeviceIdentification(), requestMessage.getCorrelationUid(),
+                    handleErrorException);
+        }
+    }
+
+    private void send(final List<RequestMessage> requestMessages) {
+        if (requestMessages.size() == 1) {
+            this.send(requestMessages.get(0));
+            return;
+        }
+
+        LOGGER.info("Sending batch of {} signing requests", requestMessages.size());
+
+        final RequestMessage batchRequestMessage = new RequestMessage(UUID.randomUUID().toString(),
+                BATCH_IDENTIFICATION, BATCH_IDENTIFICATION, new UnsignedOslpEnvelopeBatchDto(requestMessages));
+        this.signingServerRequestMessageSender.send(batchRequestMessage,
+                UnsignedOslpEnvelopeBatchDto.SIGNING_BATCH_REQUEST_MESSAGE_TYPE);
+    }
+
+    private void send(final RequestMessage requestMessage) {
+        // Send request message to signing server.
+        this.signingServerRequestMessageSender.send(requestMessage, SIGNING_REQUEST_MESSAGE_TYPE);
+    }
+}
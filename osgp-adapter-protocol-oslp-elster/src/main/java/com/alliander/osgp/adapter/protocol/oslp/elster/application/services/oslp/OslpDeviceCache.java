@@ -0,0 +1,178 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of devices, by device identification and by device uid, used
+ * by the {@link OslpDeviceSettingsService} to avoid a database lookup for each
+ * use of a device during a round trip. Entries expire after a fixed time to
+ * live, and are invalidated whenever a device is saved or removed through the
+ * {@link OslpDeviceSettingsService}.
+ *
+ * A device which was being loaded while an invalidation took place is not
+ * kept in the cache, as it may have been read before the change was
+ * committed.
+ *
+ * The cache holds its own copy of each device and hands out a new copy on
+ * every lookup, so callers may change the device they get without affecting
+ * other threads.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpDeviceCache",
+        description = "Cached devices")
+public class OslpDeviceCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpDeviceCache.class);
+
+    private static final String DEVICE_UID_PREFIX = "uid:";
+    private static final String DEVICE_IDENTIFICATION_PREFIX = "id:";
+
+    private final Cache<String, OslpDevice> devices;
+
+    /**
+     * Incremented by every invalidation, to detect loads overlapping with an
+     * invalidation.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public OslpDeviceCache(final long maximumSize, final long timeToLive) {
+        LOGGER.info("Created device cache with maximum size: {} and time to live: {} ms", maximumSize, timeToLive);
+        this.devices = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, TimeUnit.MILLISECONDS).recordStats().build();
+    }
+
+    /**
+     * @return the cached device, or null if not cached.
+     */
+    public OslpDevice getByDeviceUid(final String deviceUid) {
+        final OslpDevice device = this.devices.getIfPresent(DEVICE_UID_PREFIX + deviceUid);
+        if (device != null && !deviceUid.equals(device.getDeviceUid())) {
+            // The cached instance has been registered with a new device uid.
+            this.devices.invalidate(DEVICE_UID_PREFIX + deviceUid);
+            return null;
+        }
+        return device == null ? null : new OslpDevice(device);
+    }
+
+    /**
+     * @return the cached device, or null if not cached.
+     */
+    public OslpDevice getByDeviceIdentification(final String deviceIdentification) {
+        final OslpDevice device = this.devices.getIfPresent(DEVICE_IDENTIFICATION_PREFIX + deviceIdentification);
+        return device == null ? null : new OslpDevice(device);
+    }
+
+    /**
+     * @return the number of invalidations so far, to be passed to
+     *         {@link #put(OslpDevice, long)} for a device loaded afterwards.
+     */
+    public long getInvalidationCount() {
+        return this.invalidations.get();
+    }
+
+    /**
+     * Cache a copy of a loaded device by device identification and, when
+     * registered, by device uid. The device is not kept if it has been
+     * invalidated since the load started.
+     *
+     * @param device
+     *            the loaded device.
+     * @param invalidationsBefore
+     *            the {@link #getInvalidationCount()} before the device was
+     *            loaded.
+     */
+    public void put(final OslpDevice device, final long invalidationsBefore) {
+        final OslpDevice copy = new OslpDevice(device);
+        this.devices.put(DEVICE_IDENTIFICATION_PREFIX + copy.getDeviceIdentification(), copy);
+        if (copy.getDeviceUid() != null) {
+            this.devices.put(DEVICE_UID_PREFIX + copy.getDeviceUid(), copy);
+        }
+        if (this.invalidations.get() != invalidationsBefore) {
+            // The device may have been loaded before an update was committed.
+            this.invalidate(device);
+        }
+    }
+
+    /**
+     * Remove the device from the cache, including the entry by a device uid
+     * which differs from the device uid of the given instance.
+     */
+    public void invalidate(final OslpDevice device) {
+        this.invalidations.incrementAndGet();
+        final OslpDevice cachedDevice = this.devices.getIfPresent(DEVICE_IDENTIFICATION_PREFIX
+                + device.getDeviceIdentification());
+        if (cachedDevice != null && cachedDevice.getDeviceUid() != null) {
+            this.devices.invalidate(DEVICE_UID_PREFIX + cachedDevice.getDeviceUid());
+        }
+        this.devices.invalidate(DEVICE_IDENTIFICATION_PREFIX + device.getDeviceIdentification());
+        if (device.getDeviceUid() != null) {
+            this.devices.invalidate(DEVICE_UID_PREFIX + device.getDeviceUid());
+        }
+    }
+
+    /**
+     * Remove the device from the cache now and again once the current
+     * transaction has completed, so a concurrent lookup can not keep the
+     * device as it was before the transaction, and a lookup within the
+     * transaction can not keep changes which are rolled back. Without a
+     * transaction the device is removed once.
+     *
+     * @see #invalidate(OslpDevice)
+     */
+    public void invalidateAfterCompletion(final OslpDevice device) {
+        this.invalidate(device);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        final OslpDevice copy = new OslpDevice(device);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(final int status) {
+                OslpDeviceCache.this.invalidate(copy);
+            }
+        });
+    }
+
+    @ManagedAttribute(description = "Number of lookups found in the cache")
+    public long getHitCount() {
+        return this.devices.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of lookups not found in the cache")
+    public long getMissCount() {
+        return this.devices.stats().missCount();
+    }
+
+    /**
+     * @return the ratio of lookups which were found in the cache, 1.0 when
+     *         there have been no lookups.
+     */
+    @ManagedAttribute(description = "Ratio of lookups found in the cache")
+    public double getHitRate() {
+        return this.devices.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Number of cache entries, by device identification and by device uid")
+    public long getSize() {
+        return this.devices.size();
+    }
+}
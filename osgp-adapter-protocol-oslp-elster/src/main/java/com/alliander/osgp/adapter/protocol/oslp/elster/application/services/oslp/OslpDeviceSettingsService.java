@@ -8,15 +8,18 @@
 package com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp;
 
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
 import com.alliander.osgp.adapter.protocol.oslp.elster.domain.repositories.OslpDeviceRepository;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpPublicKeyCache;
 
 @Service
 @Transactional(value = "transactionManager")
@@ -27,6 +30,15 @@ public class OslpDeviceSettingsService {
     @Autowired
     private OslpDeviceRepository oslpDeviceRepository;
 
+    @Autowired
+    private OslpDeviceCache oslpDeviceCache;
+
+    @Autowired
+    private OslpPublicKeyCache oslpPublicKeyCache;
+
+    @Autowired
+    private OslpSequenceNumberStore oslpSequenceNumberStore;
+
     /**
      * Constructor
      */
@@ -37,37 +49,89 @@ public class OslpDeviceSettingsService {
     public OslpDevice addDevice(final OslpDevice device) {
         LOGGER.info("add device: {}", device.getDeviceIdentification());
 
-        return this.oslpDeviceRepository.save(device);
+        final OslpDevice savedDevice = this.oslpDeviceRepository.save(device);
+        this.oslpDeviceCache.invalidateAfterCompletion(savedDevice);
+        return savedDevice;
     }
 
     public void removeDevice(final OslpDevice device) {
         LOGGER.info("remove device: {}", device.getDeviceIdentification());
 
+        this.oslpDeviceCache.invalidateAfterCompletion(device);
+        this.oslpPublicKeyCache.invalidateAfterCommit(device.getDeviceIdentification(), device.getDeviceUid());
+        this.oslpSequenceNumberStore.removeAfterCommit(device.getDeviceIdentification());
         this.oslpDeviceRepository.delete(device);
     }
 
     public OslpDevice updateDevice(final OslpDevice device) {
-        LOGGER.info("update device: {}", device.getDeviceIdentification());
+        LOGGER.debug("update device: {}", device.getDeviceIdentification());
 
-        return this.oslpDeviceRepository.save(device);
+        final OslpDevice savedDevice = this.oslpDeviceRepository.save(device);
+        this.oslpDeviceCache.invalidateAfterCompletion(savedDevice);
+        return savedDevice;
     }
 
     public OslpDevice updateDeviceAndForceSave(final OslpDevice device) {
-        LOGGER.info("update device and force save: {}", device.getDeviceIdentification());
+        LOGGER.debug("update device and force save: {}", device.getDeviceIdentification());
 
-        return this.oslpDeviceRepository.saveAndFlush(device);
+        final OslpDevice savedDevice = this.oslpDeviceRepository.saveAndFlush(device);
+        this.oslpDeviceCache.invalidateAfterCompletion(savedDevice);
+        return savedDevice;
     }
 
-    public OslpDevice getDeviceByUid(final String deviceUid) {
-        LOGGER.info("get device by UID: {}", deviceUid);
+    /**
+     * Update only the sequence numbers of the given devices, in one
+     * transaction.
+     *
+     * @param sequenceNumbers
+     *            sequence numbers by device identification.
+     */
+    public void updateSequenceNumbers(final Map<String, Integer> sequenceNumbers) {
+        LOGGER.debug("update sequence numbers of {} devices", sequenceNumbers.size());
 
-        return this.oslpDeviceRepository.findByDeviceUid(deviceUid);
+        for (final Map.Entry<String, Integer> entry : sequenceNumbers.entrySet()) {
+            this.oslpDeviceRepository.updateSequenceNumber(entry.getKey(), entry.getValue());
+        }
     }
 
-    public OslpDevice getDeviceByDeviceIdentification(final String deviceIdentification) {
-        LOGGER.info("get device by device identification: {}", deviceIdentification);
+    /**
+     * @return the device, which may be a copy of a cached device. Changes to
+     *         it have to be saved using {@link #updateDevice(OslpDevice)}.
+     */
+    @Transactional(value = "transactionManager", propagation = Propagation.SUPPORTS)
+    public OslpDevice getDeviceByUid(final String deviceUid) {
+        LOGGER.debug("get device by UID: {}", deviceUid);
+
+        final OslpDevice cachedDevice = this.oslpDeviceCache.getByDeviceUid(deviceUid);
+        if (cachedDevice != null) {
+            return cachedDevice;
+        }
+        final long invalidationsBefore = this.oslpDeviceCache.getInvalidationCount();
+        final OslpDevice device = this.oslpDeviceRepository.findByDeviceUid(deviceUid);
+        if (device != null) {
+            this.oslpDeviceCache.put(device, invalidationsBefore);
+        }
+        return device;
+    }
 
-        return this.oslpDeviceRepository.findByDeviceIdentification(deviceIdentification);
+    /**
+     * @return the device, which may be a copy of a cached device. Changes to
+     *         it have to be saved using {@link #updateDevice(OslpDevice)}.
+     */
+    @Transactional(value = "transactionManager", propagation = Propagation.SUPPORTS)
+    public OslpDevice getDeviceByDeviceIdentification(final String deviceIdentification) {
+        LOGGER.debug("get device by device identification: {}", deviceIdentification);
+
+        final OslpDevice cachedDevice = this.oslpDeviceCache.getByDeviceIdentification(deviceIdentification);
+        if (cachedDevice != null) {
+            return cachedDevice;
+        }
+        final long invalidationsBefore = this.oslpDeviceCache.getInvalidationCount();
+        final OslpDevice device = this.oslpDeviceRepository.findByDeviceIdentification(deviceIdentification);
+        if (device != null) {
+            this.oslpDeviceCache.put(device, invalidationsBefore);
+        }
+        return device;
     }
 
     public List<OslpDevice> getAllDevices() {
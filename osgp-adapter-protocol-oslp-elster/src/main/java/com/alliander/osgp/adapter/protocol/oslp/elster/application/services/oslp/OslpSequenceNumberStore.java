@@ -0,0 +1,351 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
+
+/**
+ * In memory table of the sequence numbers of devices, which is authoritative
+ * over the sequence numbers in the oslp_device table. Updated sequence numbers
+ * are written to the database in batches by a background thread.
+ *
+ * Sequence numbers are loaded from the database when first used after
+ * startup. To keep this safe when the adapter stops without flushing, the
+ * sequence number of a device is written on the updating thread once it has
+ * advanced by half the sequence number window since it was last written.
+ * Unless that write fails, the sequence number in the database therefore
+ * never lags more than the window accepted by the sequence number check.
+ * Updates come from the execution pool and the messaging threads, never from
+ * the Netty I/O threads, so these writes do not block network I/O.
+ *
+ * The sequence_number column is only written by this store, full saves of an
+ * {@link OslpDevice} leave it untouched.
+ */
+public class OslpSequenceNumberStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpSequenceNumberStore.class);
+
+    private final int sequenceNumberMaximum;
+    private final int maximumLag;
+    private final int flushBatchSize;
+    private final ScheduledExecutorService flushExecutor;
+
+    private final ConcurrentMap<String, SequenceNumber> sequenceNumbers = new ConcurrentHashMap<>();
+    private final Set<String> dirtyDeviceIdentifications = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+
+    @Autowired
+    private OslpDeviceSettingsService oslpDeviceSettingsService;
+
+    /**
+     * @param sequenceNumberWindow
+     *            window of the sequence number check.
+     * @param sequenceNumberMaximum
+     *            maximum sequence number, after which it wraps to 0.
+     * @param flushInterval
+     *            interval in milliseconds of writing updated sequence
+     *            numbers to the database.
+     * @param flushBatchSize
+     *            maximum number of sequence numbers written per transaction.
+     */
+    public OslpSequenceNumberStore(final int sequenceNumberWindow, final int sequenceNumberMaximum,
+            final long flushInterval, final int flushBatchSize) {
+        LOGGER.info("Created sequence number store with flush interval: {} ms and flush batch size: {}",
+                flushInterval, flushBatchSize);
+        this.sequenceNumberMaximum = sequenceNumberMaximum;
+        this.maximumLag = Math.max(1, sequenceNumberWindow / 2);
+        this.flushBatchSize = flushBatchSize;
+
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                OslpSequenceNumberStore.this.flush();
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the current sequence number of the device, or null if the
+     *         device is unknown or has no sequence number yet.
+     */
+    public Integer getSequenceNumber(final String deviceIdentification) {
+        final SequenceNumber sequenceNumber = this.getOrLoad(deviceIdentification);
+        return sequenceNumber == null ? null : sequenceNumber.current.get();
+    }
+
+    /**
+     * Atomically update the sequence number of the device, when the current
+     * sequence number equals the expected sequence number.
+     *
+     * @return true if the sequence number has been updated.
+     */
+    public boolean compareAndSet(final String deviceIdentification, final Integer expectedSequenceNumber,
+            final int newSequenceNumber) {
+        final SequenceNumber sequenceNumber = this.getOrLoad(deviceIdentification);
+        if (sequenceNumber == null) {
+            // Device without sequence number, which only succeeds when no
+            // other thread has set a sequence number in the meantime.
+            if (expectedSequenceNumber != null) {
+                return false;
+            }
+            final SequenceNumber initialSequenceNumber = new SequenceNumber(newSequenceNumber, -1);
+            if (this.sequenceNumbers.putIfAbsent(deviceIdentification, initialSequenceNumber) != null) {
+                return false;
+            }
+            this.updated(deviceIdentification, initialSequenceNumber, newSequenceNumber);
+            return true;
+        }
+
+        if (expectedSequenceNumber == null
+                || !sequenceNumber.current.compareAndSet(expectedSequenceNumber, newSequenceNumber)) {
+            return false;
+        }
+        this.updated(deviceIdentification, sequenceNumber, newSequenceNumber);
+        return true;
+    }
+
+    /**
+     * Unconditionally update the sequence number of the device.
+     */
+    public void setSequenceNumber(final String deviceIdentification, final int newSequenceNumber) {
+        SequenceNumber sequenceNumber = this.getOrLoad(deviceIdentification);
+        if (sequenceNumber == null) {
+            final SequenceNumber initialSequenceNumber = new SequenceNumber(newSequenceNumber, -1);
+            sequenceNumber = this.sequenceNumbers.putIfAbsent(deviceIdentification, initialSequenceNumber);
+            if (sequenceNumber == null) {
+                this.updated(deviceIdentification, initialSequenceNumber, newSequenceNumber);
+                return;
+            }
+        }
+        sequenceNumber.current.set(newSequenceNumber);
+        this.updated(deviceIdentification, sequenceNumber, newSequenceNumber);
+    }
+
+    /**
+     * Replace the sequence number of the device, for instance upon
+     * registration, and write it to the database right away.
+     */
+    public void resetSequenceNumber(final String deviceIdentification, final int newSequenceNumber) {
+        SequenceNumber sequenceNumber = this.sequenceNumbers.get(deviceIdentification);
+        if (sequenceNumber == null) {
+            final SequenceNumber initialSequenceNumber = new SequenceNumber(newSequenceNumber, -1);
+            sequenceNumber = this.sequenceNumbers.putIfAbsent(deviceIdentification, initialSequenceNumber);
+            if (sequenceNumber == null) {
+                sequenceNumber = initialSequenceNumber;
+            }
+        }
+        synchronized (sequenceNumber) {
+            // A write in progress holds a value from before the reset, which
+            // must not be recorded as persisted.
+            sequenceNumber.current.set(newSequenceNumber);
+            sequenceNumber.persisted = -1;
+            sequenceNumber.resets++;
+        }
+        this.updateCount.incrementAndGet();
+        this.dirtyDeviceIdentifications.add(deviceIdentification);
+        this.flush(deviceIdentification);
+    }
+
+    /**
+     * Forget the sequence number of a device once the current transaction has
+     * been committed, for instance when the device is removed. Without a
+     * transaction the sequence number is forgotten immediately.
+     */
+    public void removeAfterCommit(final String deviceIdentification) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.remove(deviceIdentification);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                OslpSequenceNumberStore.this.remove(deviceIdentification);
+            }
+        });
+    }
+
+    private void remove(final String deviceIdentification) {
+        this.sequenceNumbers.remove(deviceIdentification);
+        this.dirtyDeviceIdentifications.remove(deviceIdentification);
+    }
+
+    private SequenceNumber getOrLoad(final String deviceIdentification) {
+        final SequenceNumber sequenceNumber = this.sequenceNumbers.get(deviceIdentification);
+        if (sequenceNumber != null) {
+            return sequenceNumber;
+        }
+
+        final OslpDevice oslpDevice = this.oslpDeviceSettingsService
+                .getDeviceByDeviceIdentification(deviceIdentification);
+        if (oslpDevice == null || oslpDevice.getSequenceNumber() == null) {
+            return null;
+        }
+
+        final SequenceNumber loadedSequenceNumber = new SequenceNumber(oslpDevice.getSequenceNumber(),
+                oslpDevice.getSequenceNumber());
+        final SequenceNumber existingSequenceNumber = this.sequenceNumbers.putIfAbsent(deviceIdentification,
+                loadedSequenceNumber);
+        return existingSequenceNumber == null ? loadedSequenceNumber : existingSequenceNumber;
+    }
+
+    private void updated(final String deviceIdentification, final SequenceNumber sequenceNumber,
+            final int newSequenceNumber) {
+        this.updateCount.incrementAndGet();
+        this.dirtyDeviceIdentifications.add(deviceIdentification);
+
+        if (sequenceNumber.persisted < 0 || this.distance(sequenceNumber.persisted, newSequenceNumber)
+                >= this.maximumLag) {
+            this.flush(deviceIdentification);
+        }
+    }
+
+    private int distance(final int from, final int to) {
+        final int range = this.sequenceNumberMaximum + 1;
+        return ((to - from) % range + range) % range;
+    }
+
+    /**
+     * Write the sequence number of a single device to the database.
+     */
+    private void flush(final String deviceIdentification) {
+        try {
+            this.write(Collections.singletonList(deviceIdentification).iterator(), 1);
+        } catch (final RuntimeException e) {
+            // Still marked as updated, so retried by the background flush.
+            LOGGER.error("Unable to write sequence number of device {} to the database", deviceIdentification, e);
+        }
+    }
+
+    /**
+     * Write all updated sequence numbers to the database.
+     */
+    public void flush() {
+        try {
+            while (!this.dirtyDeviceIdentifications.isEmpty()) {
+                if (this.write(this.dirtyDeviceIdentifications.iterator(), this.flushBatchSize) == 0) {
+                    return;
+                }
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to write sequence numbers to the database", e);
+        }
+    }
+
+    /**
+     * Stops the background flush and writes the remaining updated sequence
+     * numbers. Called by Spring when the application context is closed.
+     */
+    public void shutdown() {
+        this.flushExecutor.shutdown();
+        this.flush();
+    }
+
+    private int write(final Iterator<String> deviceIdentifications, final int batchSize) {
+        final Map<String, Integer> batch = new LinkedHashMap<>();
+        final Map<String, SequenceNumber> written = new LinkedHashMap<>();
+        final Map<String, Integer> resets = new LinkedHashMap<>();
+        while (deviceIdentifications.hasNext() && batch.size() < batchSize) {
+            final String deviceIdentification = deviceIdentifications.next();
+            // Remove before reading, so a concurrent update marks it again.
+            if (!this.dirtyDeviceIdentifications.remove(deviceIdentification)) {
+                continue;
+            }
+            final SequenceNumber sequenceNumber = this.sequenceNumbers.get(deviceIdentification);
+            if (sequenceNumber != null) {
+                synchronized (sequenceNumber) {
+                    batch.put(deviceIdentification, sequenceNumber.current.get());
+                    resets.put(deviceIdentification, sequenceNumber.resets);
+                }
+                written.put(deviceIdentification, sequenceNumber);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            this.oslpDeviceSettingsService.updateSequenceNumbers(batch);
+        } catch (final RuntimeException e) {
+            this.dirtyDeviceIdentifications.addAll(batch.keySet());
+            throw e;
+        }
+
+        for (final Map.Entry<String, SequenceNumber> entry : written.entrySet()) {
+            final SequenceNumber sequenceNumber = entry.getValue();
+            synchronized (sequenceNumber) {
+                if (sequenceNumber.resets == resets.get(entry.getKey())) {
+                    sequenceNumber.persisted = batch.get(entry.getKey());
+                } else {
+                    // Reset while writing, the database may now hold the
+                    // value from before the reset, so write it again.
+                    this.dirtyDeviceIdentifications.add(entry.getKey());
+                }
+            }
+        }
+        this.writeCount.addAndGet(batch.size());
+        LOGGER.debug("Wrote {} sequence numbers to the database", batch.size());
+        return batch.size();
+    }
+
+    /**
+     * @return the number of devices of which the sequence number has not been
+     *         written to the database yet.
+     */
+    public int getDirtyCount() {
+        return this.dirtyDeviceIdentifications.size();
+    }
+
+    public long getUpdateCount() {
+        return this.updateCount.get();
+    }
+
+    public long getWriteCount() {
+        return this.writeCount.get();
+    }
+
+    private static class SequenceNumber {
+        private final AtomicInteger current;
+        /**
+         * Last sequence number written to the database, -1 if unknown.
+         */
+        private volatile int persisted;
+        /**
+         * Number of resets, guarded by the lock of this instance.
+         */
+        private int resets;
+
+        SequenceNumber(final int current, final int persisted) {
+            this.current = new AtomicInteger(current);
+            this.persisted = persisted;
+        }
+    }
+}
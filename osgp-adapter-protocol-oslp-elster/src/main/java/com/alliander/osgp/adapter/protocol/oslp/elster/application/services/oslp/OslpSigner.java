@@ -0,0 +1,28 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp;
+
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
+
+/**
+ * Signs OSLP envelopes on behalf of the {@link OslpSigningService}. The result
+ * is handed back to {@link OslpSigningService#handleSignedOslpEnvelope} or, in
+ * case of failure, to {@link OslpSigningService#handleError}, either
+ * synchronously or after a round trip to the signing server.
+ */
+public interface OslpSigner {
+
+    void sign(UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto, String correlationUid,
+            String organisationIdentification, String deviceIdentification);
+
+    /**
+     * Releases the resources of the signer. Called by Spring when the
+     * application context is closed.
+     */
+    void shutdown();
+}
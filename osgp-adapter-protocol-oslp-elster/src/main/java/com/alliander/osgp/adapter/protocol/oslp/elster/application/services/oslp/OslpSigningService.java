@@ -19,15 +19,14 @@ import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.DeviceReq
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.DeviceRequestMessageType;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.DeviceResponseMessageSender;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OslpEnvelopeProcessor;
-import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.SigningServerRequestMessageSender;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpChannelHandlerServer;
+import com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking.OslpDeviceRequestDispatcher;
 import com.alliander.osgp.oslp.Oslp;
 import com.alliander.osgp.oslp.OslpEnvelope;
 import com.alliander.osgp.oslp.SignedOslpEnvelopeDto;
 import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
 import com.alliander.osgp.shared.infra.jms.DeviceMessageMetadata;
 import com.alliander.osgp.shared.infra.jms.ProtocolResponseMessage;
-import com.alliander.osgp.shared.infra.jms.RequestMessage;
 import com.alliander.osgp.shared.infra.jms.ResponseMessage;
 import com.alliander.osgp.shared.wsheaderattribute.priority.MessagePriorityEnum;
 
@@ -36,16 +35,17 @@ public class OslpSigningService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OslpSigningService.class);
 
-    private static final String SIGNING_REQUEST_MESSAGE_TYPE = "SIGNING_REQUEST";
-
     private static final String LINES = "-----------------------------------------------------------------------------";
 
     @Autowired
-    private SigningServerRequestMessageSender signingServerRequestMessageSender;
+    private OslpSigner oslpSigner;
 
     @Autowired
     private DeviceResponseMessageSender deviceResponseMessageSender;
 
+    @Autowired
+    private OslpDeviceRequestDispatcher oslpDeviceRequestDispatcher;
+
     private OslpChannelHandlerServer oslpChannelHandlerServer;
 
     @Autowired
@@ -54,7 +54,7 @@ public class OslpSigningService {
 
     /**
      * Build OslpEnvelope for an OSLP request using the arguments supplied and
-     * have the envelope signed by the signing server.
+     * have the envelope signed by the configured {@link OslpSigner}.
      */
     public void buildAndSignEnvelope(final String organisationIdentification, final String deviceIdentification,
             final String correlationUid, final byte[] deviceId, final byte[] sequenceNumber, final String ipAddress,
@@ -65,16 +65,13 @@ public class OslpSigningService {
         final UnsignedOslpEnvelopeDto oslpEnvelopeDto = new UnsignedOslpEnvelopeDto(sequenceNumber, deviceId,
                 payloadMessage, ipAddress, domain, domainVersion, messageType, retryCount, isScheduled,
                 organisationIdentification, correlationUid, extraData);
-        final RequestMessage requestMessage = new RequestMessage(correlationUid, organisationIdentification,
-                deviceIdentification, oslpEnvelopeDto);
 
-        // Send request message to signing server.
-        this.signingServerRequestMessageSender.send(requestMessage, SIGNING_REQUEST_MESSAGE_TYPE);
+        this.oslpSigner.sign(oslpEnvelopeDto, correlationUid, organisationIdentification, deviceIdentification);
     }
 
     /**
      * Build OslpEnvelope for an OSLP response using the arguments supplied and
-     * have the envelope signed by the signing server.
+     * have the envelope signed by the configured {@link OslpSigner}.
      */
     public void buildAndSignEnvelope(final byte[] deviceId, final byte[] sequenceNumber,
             final Oslp.Message payloadMessage, final Integer channelId,
@@ -86,15 +83,13 @@ public class OslpSigningService {
         // Create DTO to transfer data using request message.
         final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto = new UnsignedOslpEnvelopeDto(sequenceNumber, deviceId,
                 payloadMessage, correlationUid);
-        final RequestMessage requestMessage = new RequestMessage(correlationUid, "organisationIdentification",
-                "deviceIdentification", unsignedOslpEnvelopeDto);
 
-        // Send request message to signing server.
-        this.signingServerRequestMessageSender.send(requestMessage, SIGNING_REQUEST_MESSAGE_TYPE);
+        this.oslpSigner.sign(unsignedOslpEnvelopeDto, correlationUid, "organisationIdentification",
+                "deviceIdentification");
     }
 
     /**
-     * Handle incoming signed OslpEnvelope from signing server.
+     * Handle incoming signed OslpEnvelope from the {@link OslpSigner}.
      */
     public void handleSignedOslpEnvelope(final SignedOslpEnvelopeDto signedOslpEnvelopeDto,
             final String deviceIdentification) {
@@ -172,12 +167,15 @@ public class OslpSigningService {
     }
 
     /**
-     * Handle an error from the signing server.
+     * Handle an error from the {@link OslpSigner}. The device held for the
+     * request is released, as the request will not be sent.
      */
     public void handleError(final String deviceIdentification, final ResponseMessage responseMessage) {
 
         final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto = (UnsignedOslpEnvelopeDto) responseMessage
                 .getDataObject();
+        this.oslpDeviceRequestDispatcher.release(deviceIdentification, unsignedOslpEnvelopeDto.getCorrelationUid());
+
         final DeviceMessageMetadata deviceMessageMetadata = new DeviceMessageMetadata(deviceIdentification,
                 unsignedOslpEnvelopeDto.getOrganisationIdentification(), unsignedOslpEnvelopeDto.getCorrelationUid(),
                 unsignedOslpEnvelopeDto.getMessageType(), MessagePriorityEnum.DEFAULT.getPriority());
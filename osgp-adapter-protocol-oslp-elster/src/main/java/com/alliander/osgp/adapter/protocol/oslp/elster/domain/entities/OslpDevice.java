@@ -37,6 +37,12 @@ public class OslpDevice extends AbstractEntity {
      */
     private static final long serialVersionUID = 3899692663578950343L;
 
+    /**
+     * Shared by all instances, so copies of a device do not repeat the random
+     * platform values of each other.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     @Column(unique = true, nullable = true)
     private String deviceUid;
 
@@ -47,7 +53,11 @@ public class OslpDevice extends AbstractEntity {
 
     private String deviceType;
 
-    @Column(nullable = true)
+    /**
+     * Written by the sequence number store only, a save of the whole device
+     * could otherwise move it backwards.
+     */
+    @Column(nullable = true, updatable = false)
     private Integer sequenceNumber;
 
     @Column(nullable = true)
@@ -56,9 +66,6 @@ public class OslpDevice extends AbstractEntity {
     @Column(nullable = true)
     private Integer randomPlatform;
 
-    @Transient
-    private final SecureRandom random = new SecureRandom();
-
     @Transient
     private Integer sequenceNumberMaximum = 65535;
 
@@ -86,6 +93,25 @@ public class OslpDevice extends AbstractEntity {
         this.deviceIdentification = deviceIdentification;
     }
 
+    /**
+     * Copy constructor, including the id and version, so a copy can be saved
+     * in place of the device it was copied from.
+     */
+    public OslpDevice(final OslpDevice device) {
+        this.id = device.getId();
+        this.creationTime = device.getCreationTime();
+        this.modificationTime = device.getModificationTime();
+        this.setVersion(device.getVersion());
+        this.deviceUid = device.deviceUid;
+        this.deviceIdentification = device.deviceIdentification;
+        this.deviceType = device.deviceType;
+        this.sequenceNumber = device.sequenceNumber;
+        this.randomDevice = device.randomDevice;
+        this.randomPlatform = device.randomPlatform;
+        this.sequenceNumberMaximum = device.sequenceNumberMaximum;
+        this.publicKey = device.publicKey;
+    }
+
     public String getDeviceUid() {
         return this.deviceUid;
     }
@@ -136,7 +162,7 @@ public class OslpDevice extends AbstractEntity {
         // Save secure device random.
         this.randomDevice = randomDevice;
         // Generate secure platform random.
-        this.randomPlatform = this.random.nextInt(this.sequenceNumberMaximum + 1);
+        this.randomPlatform = RANDOM.nextInt(this.sequenceNumberMaximum + 1);
     }
 
     public void updatePublicKey(final String publicKey) {
@@ -8,6 +8,9 @@
 package com.alliander.osgp.adapter.protocol.oslp.elster.domain.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
@@ -17,4 +20,10 @@ public interface OslpDeviceRepository extends JpaRepository<OslpDevice, Long> {
     OslpDevice findByDeviceUid(String deviceUid);
 
     OslpDevice findByDeviceIdentification(String deviceIdentification);
+
+    @Modifying
+    @Query("update OslpDevice d set d.sequenceNumber = :sequenceNumber "
+            + "where d.deviceIdentification = :deviceIdentification")
+    int updateSequenceNumber(@Param("deviceIdentification") String deviceIdentification,
+            @Param("sequenceNumber") Integer sequenceNumber);
 }
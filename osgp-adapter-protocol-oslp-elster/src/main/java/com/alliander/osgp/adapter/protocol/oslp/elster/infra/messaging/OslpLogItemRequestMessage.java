@@ -7,18 +7,32 @@
  */
 package com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging;
 
-import org.apache.commons.lang3.StringUtils;
+import java.io.IOException;
 
 import com.google.protobuf.Message;
+import com.google.protobuf.TextFormat;
 
+/**
+ * Log item of an OSLP message. The encoded (C array) and decoded (text)
+ * representations of the payload are only rendered when requested, which for
+ * asynchronously sent log items happens on the publisher thread. Both are
+ * truncated to the maximum length, and rendering stops as soon as that length
+ * has been reached.
+ */
 public class OslpLogItemRequestMessage {
 
     private static final int MAX_MESSAGE_LENGTH = 8000;
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     private boolean incoming;
 
     private String deviceUid;
 
+    private Message message;
+
+    private byte[] payload;
+
     private String encodedMessage;
 
     private String decodedMessage;
@@ -39,11 +53,8 @@ public class OslpLogItemRequestMessage {
         this.deviceIdentification = deviceIdentification;
         this.incoming = incoming;
         this.valid = valid;
+        this.message = message;
         this.payloadMessageSerializedSize = payloadMessageSerializedSize;
-
-        // Truncate the log-items to max length.
-        this.encodedMessage = StringUtils.substring(bytesToCArray(message.toByteArray()), 0, MAX_MESSAGE_LENGTH);
-        this.decodedMessage = StringUtils.substring(message.toString(), 0, MAX_MESSAGE_LENGTH);
     }
 
     public Boolean isIncoming() {
@@ -54,11 +65,35 @@ public class OslpLogItemRequestMessage {
         return this.deviceUid;
     }
 
+    /**
+     * @return the serialized payload message.
+     */
+    public byte[] getPayload() {
+        if (this.payload == null) {
+            this.payload = this.message.toByteArray();
+        }
+        return this.payload;
+    }
+
+    /**
+     * @return the payload as C array of hex bytes, truncated to the maximum
+     *         length.
+     */
     public String getEncodedMessage() {
+        if (this.encodedMessage == null) {
+            this.encodedMessage = bytesToCArray(this.getPayload(), MAX_MESSAGE_LENGTH);
+        }
         return this.encodedMessage;
     }
 
+    /**
+     * @return the payload in protobuf text format, truncated to the maximum
+     *         length.
+     */
     public String getDecodedMessage() {
+        if (this.decodedMessage == null) {
+            this.decodedMessage = messageToString(this.message, MAX_MESSAGE_LENGTH);
+        }
         return this.decodedMessage;
     }
 
@@ -70,17 +105,53 @@ public class OslpLogItemRequestMessage {
         return this.organisationIdentification;
     }
 
-    private static String bytesToCArray(final byte[] bytes) {
-        String s = "";
-        if (bytes.length > 0) {
-            s = javax.xml.bind.DatatypeConverter.printHexBinary(bytes);
-            // Split every two chars with
-            // ', ' to create a C array.
-            s = s.replaceAll("(.{2})", ", 0x$1");
-            // Remove the leading comma.
-            s = s.substring(2);
+    /**
+     * Formats bytes as C array ("0x01, 0x02"), producing at most maxLength
+     * characters.
+     */
+    static String bytesToCArray(final byte[] bytes, final int maxLength) {
+        if (bytes.length == 0 || maxLength <= 0) {
+            return "";
+        }
+
+        // Each byte takes "0xAB", all but the first are preceded by ", ".
+        final char[] chars = new char[(int) Math.min(maxLength, bytes.length * 6L - 2)];
+        int position = 0;
+        for (int i = 0; i < bytes.length && position < chars.length; i++) {
+            if (i > 0) {
+                position = put(chars, position, ',');
+                position = put(chars, position, ' ');
+            }
+            position = put(chars, position, '0');
+            position = put(chars, position, 'x');
+            position = put(chars, position, HEX_DIGITS[(bytes[i] >> 4) & 0x0F]);
+            position = put(chars, position, HEX_DIGITS[bytes[i] & 0x0F]);
+        }
+        return new String(chars);
+    }
+
+    private static int put(final char[] chars, final int position, final char c) {
+        if (position < chars.length) {
+            chars[position] = c;
         }
-        return s;
+        return position + 1;
+    }
+
+    /**
+     * Prints the message in protobuf text format, stopping at maxLength
+     * characters.
+     */
+    static String messageToString(final Message message, final int maxLength) {
+        final LimitedAppendable output = new LimitedAppendable(maxLength);
+        try {
+            TextFormat.print(message, output);
+        } catch (final LimitReachedException e) {
+            // Truncated at the maximum length.
+        } catch (final IOException e) {
+            // Not thrown when appending to a StringBuilder.
+            throw new IllegalStateException(e);
+        }
+        return output.toString();
     }
 
     public Boolean isValid() {
@@ -90,4 +161,51 @@ public class OslpLogItemRequestMessage {
     public int getPayloadMessageSerializedSize() {
         return this.payloadMessageSerializedSize;
     }
+
+    private static class LimitReachedException extends IOException {
+        private static final long serialVersionUID = 6431930452378306413L;
+    }
+
+    /**
+     * Appendable which stops the printing by throwing an exception as soon as
+     * the maximum length has been reached.
+     */
+    private static class LimitedAppendable implements Appendable {
+        private final StringBuilder builder = new StringBuilder();
+        private final int maxLength;
+
+        LimitedAppendable(final int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq) throws IOException {
+            return this.append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+            final int remaining = this.maxLength - this.builder.length();
+            if (end - start > remaining) {
+                this.builder.append(csq, start, start + remaining);
+                throw new LimitReachedException();
+            }
+            this.builder.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) throws IOException {
+            if (this.builder.length() >= this.maxLength) {
+                throw new LimitReachedException();
+            }
+            this.builder.append(c);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return this.builder.toString();
+        }
+    }
 }
@@ -7,8 +7,19 @@
  */
 package com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.jms.JMSException;
 import javax.jms.Message;
+import javax.jms.MessageProducer;
 import javax.jms.ObjectMessage;
 import javax.jms.Session;
 
@@ -17,41 +28,291 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.core.ProducerCallback;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 import com.alliander.osgp.shared.infra.jms.Constants;
 
+/**
+ * Sends OSLP log items to the logging component.
+ *
+ * With a queue capacity larger than zero, log items are queued in a bounded
+ * lock-free queue and sent by a background publisher, so the threads handling
+ * devices never wait for the message broker. The publisher sends the queued
+ * log items in batches, using one session and producer per batch. What happens
+ * when the queue is full is determined by the {@link OverflowPolicy}.
+ *
+ * In compact mode, the serialized payload is sent as message body instead of
+ * the encoded and decoded representations, leaving the rendering of those to
+ * the consumer of the log items.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpLogItemRequestMessageSender",
+        description = "OSLP log items sent to the logging component")
 public class OslpLogItemRequestMessageSender {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OslpLogItemRequestMessageSender.class);
 
+    /**
+     * Boolean message property, true when the body contains the serialized
+     * payload instead of the encoded and decoded message properties.
+     */
+    public static final String COMPACT = "Compact";
+
+    /**
+     * Handling of log items which arrive when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the new log item.
+         */
+        DROP_NEWEST,
+        /**
+         * Discard the oldest queued log item to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Send the new log item on the calling thread.
+         */
+        CALLER_SENDS
+    }
+
+    private final int queueCapacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean compact;
+    private final ScheduledExecutorService publisher;
+
+    private final Queue<OslpLogItemRequestMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
     @Autowired
     private JmsTemplate oslpLogItemRequestsJmsTemplate;
 
+    public OslpLogItemRequestMessageSender() {
+        this(0, 1, 0, OverflowPolicy.CALLER_SENDS, false);
+    }
+
+    /**
+     * @param queueCapacity
+     *            maximum number of queued log items, 0 sends every log item
+     *            on the calling thread.
+     * @param batchSize
+     *            maximum number of log items sent using one session.
+     * @param publishInterval
+     *            time in milliseconds the publisher waits when the queue is
+     *            empty.
+     * @param overflowPolicy
+     *            handling of log items when the queue is full.
+     * @param compact
+     *            send the serialized payload instead of the encoded and
+     *            decoded messages.
+     */
+    public OslpLogItemRequestMessageSender(final int queueCapacity, final int batchSize, final long publishInterval,
+            final OverflowPolicy overflowPolicy, final boolean compact) {
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.compact = compact;
+
+        if (queueCapacity > 0) {
+            LOGGER.info("Created asynchronous log item sender with queue capacity: {}, batch size: {} and overflow "
+                    + "policy: {}", queueCapacity, batchSize, overflowPolicy);
+            this.publisher = Executors.newSingleThreadScheduledExecutor();
+            this.publisher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    OslpLogItemRequestMessageSender.this.publish();
+                }
+            }, publishInterval, publishInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.publisher = null;
+        }
+    }
+
     public void send(final OslpLogItemRequestMessage oslpLogItemRequestMessage) {
 
+        if (this.publisher == null) {
+            this.sendNow(oslpLogItemRequestMessage);
+            return;
+        }
+
+        if (this.reserve()) {
+            this.enqueue(oslpLogItemRequestMessage);
+            return;
+        }
+
+        switch (this.overflowPolicy) {
+        case DROP_OLDEST:
+            if (this.queue.poll() != null) {
+                this.droppedCount.incrementAndGet();
+                this.enqueue(oslpLogItemRequestMessage);
+            } else if (this.reserve()) {
+                // Drained concurrently by the publisher.
+                this.enqueue(oslpLogItemRequestMessage);
+            } else {
+                this.droppedCount.incrementAndGet();
+            }
+            break;
+        case CALLER_SENDS:
+            this.sendNow(oslpLogItemRequestMessage);
+            break;
+        case DROP_NEWEST:
+        default:
+            this.droppedCount.incrementAndGet();
+            break;
+        }
+    }
+
+    /**
+     * Reserve a place in the queue.
+     *
+     * @return false if the queue is full.
+     */
+    private boolean reserve() {
+        int size = this.queueSize.get();
+        while (size < this.queueCapacity) {
+            if (this.queueSize.compareAndSet(size, size + 1)) {
+                return true;
+            }
+            size = this.queueSize.get();
+        }
+        return false;
+    }
+
+    private void enqueue(final OslpLogItemRequestMessage oslpLogItemRequestMessage) {
+        this.queue.offer(oslpLogItemRequestMessage);
+        this.queuedCount.incrementAndGet();
+    }
+
+    /**
+     * Send all queued log items, in batches.
+     */
+    public void publish() {
+        final List<OslpLogItemRequestMessage> batch = new ArrayList<>(this.batchSize);
+        OslpLogItemRequestMessage oslpLogItemRequestMessage;
+        while ((oslpLogItemRequestMessage = this.queue.poll()) != null) {
+            this.queueSize.decrementAndGet();
+            batch.add(oslpLogItemRequestMessage);
+            if (batch.size() >= this.batchSize) {
+                this.sendBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            this.sendBatch(batch);
+        }
+    }
+
+    /**
+     * Stops the publisher and sends the remaining queued log items. Called by
+     * Spring when the application context is closed.
+     */
+    public void shutdown() {
+        if (this.publisher != null) {
+            this.publisher.shutdown();
+            this.publish();
+        }
+    }
+
+    private void sendBatch(final List<OslpLogItemRequestMessage> batch) {
+        LOGGER.debug("Sending batch of {} OslpLogItemRequestMessages", batch.size());
+
+        try {
+            this.oslpLogItemRequestsJmsTemplate.execute(new ProducerCallback<Void>() {
+                @Override
+                public Void doInJms(final Session session, final MessageProducer producer) throws JMSException {
+                    final JmsTemplate jmsTemplate = OslpLogItemRequestMessageSender.this.oslpLogItemRequestsJmsTemplate;
+                    for (final OslpLogItemRequestMessage oslpLogItemRequestMessage : batch) {
+                        final Message message = OslpLogItemRequestMessageSender.this.createMessage(session,
+                                oslpLogItemRequestMessage);
+                        if (jmsTemplate.isExplicitQosEnabled()) {
+                            producer.send(message, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(),
+                                    jmsTemplate.getTimeToLive());
+                        } else {
+                            producer.send(message);
+                        }
+                    }
+                    if (session.getTransacted()) {
+                        JmsUtils.commitIfNecessary(session);
+                    }
+                    return null;
+                }
+            });
+            this.sentCount.addAndGet(batch.size());
+        } catch (final RuntimeException e) {
+            this.failedCount.addAndGet(batch.size());
+            LOGGER.error("Unable to send batch of {} OslpLogItemRequestMessages", batch.size(), e);
+        }
+    }
+
+    private void sendNow(final OslpLogItemRequestMessage oslpLogItemRequestMessage) {
+
         LOGGER.debug("Sending OslpLogItemRequestMessage");
 
         this.oslpLogItemRequestsJmsTemplate.send(new MessageCreator() {
             @Override
             public Message createMessage(final Session session) throws JMSException {
-                final ObjectMessage objectMessage = session.createObjectMessage();
-                objectMessage.setJMSType(Constants.OSLP_LOG_ITEM_REQUEST);
-                objectMessage.setStringProperty(Constants.IS_INCOMING, oslpLogItemRequestMessage.isIncoming()
-                        .toString());
-                objectMessage.setStringProperty(Constants.DEVICE_UID, oslpLogItemRequestMessage.getDeviceUid());
-                objectMessage.setStringProperty(Constants.ENCODED_MESSAGE,
-                        oslpLogItemRequestMessage.getEncodedMessage());
-                objectMessage.setStringProperty(Constants.DECODED_MESSAGE,
-                        oslpLogItemRequestMessage.getDecodedMessage());
-                objectMessage.setStringProperty(Constants.DEVICE_IDENTIFICATION,
-                        oslpLogItemRequestMessage.getDeviceIdentification());
-                objectMessage.setStringProperty(Constants.ORGANISATION_IDENTIFICATION,
-                        oslpLogItemRequestMessage.getOrganisationIdentification());
-                objectMessage.setStringProperty(Constants.IS_VALID, oslpLogItemRequestMessage.isValid().toString());
-                objectMessage.setIntProperty(Constants.PAYLOAD_MESSAGE_SERIALIZED_SIZE,
-                        oslpLogItemRequestMessage.getPayloadMessageSerializedSize());
-                return objectMessage;
+                return OslpLogItemRequestMessageSender.this.createMessage(session, oslpLogItemRequestMessage);
             }
         });
+        this.sentCount.incrementAndGet();
+    }
+
+    private Message createMessage(final Session session, final OslpLogItemRequestMessage oslpLogItemRequestMessage)
+            throws JMSException {
+        final ObjectMessage objectMessage = session.createObjectMessage();
+        objectMessage.setJMSType(Constants.OSLP_LOG_ITEM_REQUEST);
+        objectMessage.setStringProperty(Constants.IS_INCOMING, oslpLogItemRequestMessage.isIncoming().toString());
+        objectMessage.setStringProperty(Constants.DEVICE_UID, oslpLogItemRequestMessage.getDeviceUid());
+        if (this.compact) {
+            objectMessage.setBooleanProperty(COMPACT, true);
+            objectMessage.setObject(oslpLogItemRequestMessage.getPayload());
+        } else {
+            objectMessage.setStringProperty(Constants.ENCODED_MESSAGE, oslpLogItemRequestMessage.getEncodedMessage());
+            objectMessage.setStringProperty(Constants.DECODED_MESSAGE, oslpLogItemRequestMessage.getDecodedMessage());
+        }
+        objectMessage.setStringProperty(Constants.DEVICE_IDENTIFICATION,
+                oslpLogItemRequestMessage.getDeviceIdentification());
+        objectMessage.setStringProperty(Constants.ORGANISATION_IDENTIFICATION,
+                oslpLogItemRequestMessage.getOrganisationIdentification());
+        objectMessage.setStringProperty(Constants.IS_VALID, oslpLogItemRequestMessage.isValid().toString());
+        objectMessage.setIntProperty(Constants.PAYLOAD_MESSAGE_SERIALIZED_SIZE,
+                oslpLogItemRequestMessage.getPayloadMessageSerializedSize());
+        return objectMessage;
+    }
+
+    /**
+     * @return the number of log items waiting to be sent.
+     */
+    @ManagedAttribute(description = "Number of log items waiting to be sent")
+    public int getQueueSize() {
+        return this.queueSize.get();
+    }
+
+    @ManagedAttribute(description = "Number of log items queued for the background publisher")
+    public long getQueuedCount() {
+        return this.queuedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of log items dropped because the queue was full")
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of log items sent")
+    public long getSentCount() {
+        return this.sentCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of log items which could not be sent")
+    public long getFailedCount() {
+        return this.failedCount.get();
     }
 }
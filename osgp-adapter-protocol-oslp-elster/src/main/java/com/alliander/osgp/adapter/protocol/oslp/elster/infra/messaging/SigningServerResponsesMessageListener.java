@@ -7,6 +7,8 @@
  */
 package com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging;
 
+import java.io.Serializable;
+
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -18,7 +20,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSigningService;
+import com.alliander.osgp.oslp.SignedOslpEnvelopeBatchDto;
 import com.alliander.osgp.oslp.SignedOslpEnvelopeDto;
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
+import com.alliander.osgp.shared.exceptionhandling.ComponentType;
+import com.alliander.osgp.shared.exceptionhandling.OsgpException;
 import com.alliander.osgp.shared.infra.jms.Constants;
 import com.alliander.osgp.shared.infra.jms.ResponseMessage;
 import com.alliander.osgp.shared.infra.jms.ResponseMessageResultType;
@@ -41,25 +47,88 @@ public class SigningServerResponsesMessageListener implements MessageListener {
             final String correlationId = objectMessage.getJMSCorrelationID();
             final String deviceIdentification = objectMessage.getStringProperty(Constants.DEVICE_IDENTIFICATION);
             final ResponseMessage responseMessage = (ResponseMessage) objectMessage.getObject();
-            final ResponseMessageResultType result = responseMessage == null ? null : responseMessage.getResult();
 
-            // Check the result.
-            if (result.equals(ResponseMessageResultType.NOT_OK)) {
-                LOGGER.error("OslpEnvelope was not signed by signing-server. Unable to send request to device: {}",
-                        deviceIdentification);
-                this.oslpSigningService.handleError(deviceIdentification, responseMessage);
+            if (SignedOslpEnvelopeBatchDto.SIGNING_BATCH_RESPONSE_MESSAGE_TYPE.equals(messageType)) {
+                final SignedOslpEnvelopeBatchDto batchDto = (SignedOslpEnvelopeBatchDto) responseMessage.getDataObject();
+                LOGGER.info("Received batch of {} signing responses, correlationId: {}",
+                        batchDto.size(), correlationId);
+
+                for (final ResponseMessage batchResponseMessage : batchDto.getResponseMessages()) {
+                    this.handleBatchResponseMessage(batchResponseMessage, messageType);
+                }
                 return;
             }
 
-            LOGGER.info("messageType: {}, deviceIdentification: {}, result: {}, correlationId: {}", messageType,
-                    deviceIdentification, result, correlationId);
-
-            // Get the DTO object containing signed OslpEnvelope.
-            final SignedOslpEnvelopeDto signedOslpEnvelopeDto = (SignedOslpEnvelopeDto) responseMessage.getDataObject();
-
-            this.oslpSigningService.handleSignedOslpEnvelope(signedOslpEnvelopeDto, deviceIdentification);
+            this.handleResponseMessage(responseMessage, messageType, deviceIdentification, correlationId);
         } catch (final JMSException ex) {
             LOGGER.error("Exception: {} ", ex.getMessage(), ex);
         }
     }
+
+    /**
+     * Handle one response of a batch. A failure is reported for that request
+     * only, as rolling back the message would redeliver the requests of the
+     * batch which have already been sent to their devices.
+     */
+    private void handleBatchResponseMessage(final ResponseMessage responseMessage, final String messageType) {
+        final String deviceIdentification = responseMessage.getDeviceIdentification();
+        try {
+            this.handleResponseMessage(responseMessage, messageType, deviceIdentification,
+                    responseMessage.getCorrelationUid());
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to handle signing response for device: {}, correlationId: {}", deviceIdentification,
+                    responseMessage.getCorrelationUid(), e);
+            this.handleBatchResponseError(responseMessage, e);
+        }
+    }
+
+    private void handleBatchResponseError(final ResponseMessage responseMessage, final Exception e) {
+        final Serializable dataObject = responseMessage.getDataObject();
+        final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto;
+        if (dataObject instanceof SignedOslpEnvelopeDto) {
+            unsignedOslpEnvelopeDto = ((SignedOslpEnvelopeDto) dataObject).getUnsignedOslpEnvelopeDto();
+        } else if (dataObject instanceof UnsignedOslpEnvelopeDto) {
+            unsignedOslpEnvelopeDto = (UnsignedOslpEnvelopeDto) dataObject;
+        } else {
+            LOGGER.error("Signing response for device: {} has no envelope, unable to report the failure",
+                    responseMessage.getDeviceIdentification());
+            return;
+        }
+
+        final ResponseMessage errorResponseMessage = ResponseMessage.newResponseMessageBuilder()
+                .withCorrelationUid(responseMessage.getCorrelationUid())
+                .withOrganisationIdentification(responseMessage.getOrganisationIdentification())
+                .withDeviceIdentification(responseMessage.getDeviceIdentification())
+                .withResult(ResponseMessageResultType.NOT_OK)
+                .withOsgpException(
+                        new OsgpException(ComponentType.PROTOCOL_OSLP, "Failed to handle signing response", e))
+                .withDataObject(unsignedOslpEnvelopeDto).build();
+        try {
+            this.oslpSigningService.handleError(responseMessage.getDeviceIdentification(), errorResponseMessage);
+        } catch (final RuntimeException ex) {
+            LOGGER.error("Unable to report signing response failure for device: {}",
+                    responseMessage.getDeviceIdentification(), ex);
+        }
+    }
+
+    private void handleResponseMessage(final ResponseMessage responseMessage, final String messageType,
+            final String deviceIdentification, final String correlationId) {
+        final ResponseMessageResultType result = responseMessage == null ? null : responseMessage.getResult();
+
+        // Check the result.
+        if (result.equals(ResponseMessageResultType.NOT_OK)) {
+            LOGGER.error("OslpEnvelope was not signed by signing-server. Unable to send request to device: {}",
+                    deviceIdentification);
+            this.oslpSigningService.handleError(deviceIdentification, responseMessage);
+            return;
+        }
+
+        LOGGER.info("messageType: {}, deviceIdentification: {}, result: {}, correlationId: {}", messageType,
+                deviceIdentification, result, correlationId);
+
+        // Get the DTO object containing signed OslpEnvelope.
+        final SignedOslpEnvelopeDto signedOslpEnvelopeDto = (SignedOslpEnvelopeDto) responseMessage.getDataObject();
+
+        this.oslpSigningService.handleSignedOslpEnvelope(signedOslpEnvelopeDto, deviceIdentification);
+    }
 }
@@ -7,11 +7,14 @@
  */
 package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
 
+import org.jboss.netty.util.Timeout;
 
 public class OslpCallbackHandler {
 
     private final OslpResponseHandler responseHandler;
 
+    private volatile Timeout responseTimeout;
+
     public OslpCallbackHandler(final OslpResponseHandler responseHandler) {
         this.responseHandler = responseHandler;
     }
@@ -19,4 +22,18 @@ public class OslpCallbackHandler {
     protected OslpResponseHandler getDeviceResponseHandler() {
         return this.responseHandler;
     }
+
+    protected void setResponseTimeout(final Timeout responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    /**
+     * Cancel the response timeout, if any, as the request has been handled.
+     */
+    protected void cancelResponseTimeout() {
+        final Timeout timeout = this.responseTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
 }
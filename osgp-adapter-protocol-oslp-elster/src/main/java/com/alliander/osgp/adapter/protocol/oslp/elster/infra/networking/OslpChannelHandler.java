@@ -22,8 +22,8 @@ import org.jboss.netty.channel.SimpleChannelHandler;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpDeviceSettingsService;
 import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
-import com.alliander.osgp.adapter.protocol.oslp.elster.domain.repositories.OslpDeviceRepository;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OslpLogItemRequestMessage;
 import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.OslpLogItemRequestMessageSender;
 import com.alliander.osgp.core.db.api.application.services.DeviceDataService;
@@ -44,7 +44,7 @@ public abstract class OslpChannelHandler extends SimpleChannelHandler {
     protected int connectionTimeout;
 
     @Autowired
-    private OslpDeviceRepository oslpDeviceRepository;
+    private OslpDeviceSettingsService oslpDeviceSettingsService;
 
     @Autowired
     private OslpLogItemRequestMessageSender oslpLogItemRequestMessageSender;
@@ -112,7 +112,7 @@ public abstract class OslpChannelHandler extends SimpleChannelHandler {
 
         if (StringUtils.isEmpty(deviceIdentification)) {
             // Getting the deviceIdentification from the oslpDevice instance
-            final OslpDevice oslpDevice = this.oslpDeviceRepository.findByDeviceUid(deviceUid);
+            final OslpDevice oslpDevice = this.oslpDeviceSettingsService.getDeviceByUid(deviceUid);
             if (oslpDevice != null) {
                 deviceIdentification = oslpDevice.getDeviceIdentification();
             }
@@ -124,7 +124,7 @@ public abstract class OslpChannelHandler extends SimpleChannelHandler {
         this.oslpLogItemRequestMessageSender.send(oslpLogItemRequestMessage);
     }
 
-    private boolean isConnectionReset(final Throwable e) {
+    protected boolean isConnectionReset(final Throwable e) {
         return e != null && e instanceof IOException && e.getMessage() != null
                 && e.getMessage().contains("Connection reset by peer");
     }
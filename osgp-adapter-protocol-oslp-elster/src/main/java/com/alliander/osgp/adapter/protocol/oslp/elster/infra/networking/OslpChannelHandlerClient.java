@@ -9,6 +9,12 @@ package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
 
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.channel.Channel;
@@ -18,15 +24,21 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.DeviceRegistrationService;
-import com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging.DeviceResponseMessageSender;
 import com.alliander.osgp.oslp.OslpEnvelope;
 import com.alliander.osgp.shared.exceptionhandling.NoDeviceResponseException;
 
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpChannelHandlerClient",
+        description = "Requests sent to devices by the adapter")
 public class OslpChannelHandlerClient extends OslpChannelHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OslpChannelHandlerClient.class);
@@ -37,6 +49,30 @@ public class OslpChannelHandlerClient extends OslpChannelHandler {
     @Autowired
     private DeviceRegistrationService deviceRegistrationService;
 
+    @Autowired
+    private Timer oslpTimer;
+
+    @Autowired
+    private OslpResponseTimeouts oslpResponseTimeouts;
+
+    /**
+     * When enabled, the connection to a device is kept open for the idle
+     * timeout after a response has been received, so a next request to the
+     * same device can be sent over it without connecting again.
+     */
+    @Resource
+    private boolean oslpConnectionReuse;
+
+    @Resource
+    private int oslpConnectionIdleTimeout;
+
+    /**
+     * Open connections without a pending request, by device identification.
+     */
+    private final ConcurrentMap<String, IdleChannel> idleChannels = new ConcurrentHashMap<>();
+
+    private final AtomicLong responseTimeoutCount = new AtomicLong();
+
     public OslpChannelHandlerClient() {
         super(LOGGER);
     }
@@ -56,17 +92,42 @@ public class OslpChannelHandlerClient extends OslpChannelHandler {
     @Override
     public void channelDisconnected(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
         final int channelId = e.getChannel().getId();
-        if (this.callbackHandlers.containsKey(channelId)) {
-            this.callbackHandlers.get(channelId).getDeviceResponseHandler()
-                    .handleException(new NoDeviceResponseException());
-            this.callbackHandlers.remove(channelId);
+        this.removeIdleChannel(e.getChannel());
+        final OslpCallbackHandler callbackHandler = this.callbackHandlers.remove(channelId);
+        if (callbackHandler != null) {
+            callbackHandler.cancelResponseTimeout();
+            callbackHandler.getDeviceResponseHandler().handleException(new NoDeviceResponseException());
         }
         super.channelDisconnected(ctx, e);
     }
 
+    @Override
+    public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+        // A channel which never connected is closed without being disconnected.
+        final int channelId = e.getChannel().getId();
+        this.removeIdleChannel(e.getChannel());
+        final OslpCallbackHandler callbackHandler = this.callbackHandlers.remove(channelId);
+        if (callbackHandler != null) {
+            callbackHandler.cancelResponseTimeout();
+            callbackHandler.getDeviceResponseHandler().handleException(new NoDeviceResponseException());
+        }
+        super.channelClosed(ctx, e);
+    }
+
     @Override
     public void exceptionCaught(final ChannelHandlerContext ctx, final ExceptionEvent e) throws Exception {
-        super.exceptionCaught(ctx, e);
+        final int channelId = e.getChannel().getId();
+        if (this.isConnectionReset(e.getCause())) {
+            LOGGER.info("{} Connection was (as expected) reset by the device.", channelId);
+        } else {
+            LOGGER.warn("{} Unexpected exception from downstream. {}", channelId, e.getCause());
+            final OslpCallbackHandler callbackHandler = this.callbackHandlers.remove(channelId);
+            if (callbackHandler != null) {
+                callbackHandler.cancelResponseTimeout();
+                callbackHandler.getDeviceResponseHandler().handleException(e.getCause());
+            }
+        }
+        e.getChannel().close();
     }
 
     @Override
@@ -84,9 +145,18 @@ public class OslpChannelHandlerClient extends OslpChannelHandler {
                         .convertByteArrayToInteger(message.getSequenceNumber());
                 this.deviceRegistrationService.checkSequenceNumber(message.getDeviceId(), sequenceNumber);
 
-                final OslpCallbackHandler callbackHandler = this.callbackHandlers.get(channelId);
-                this.callbackHandlers.remove(channelId);
-                e.getChannel().close();
+                final OslpCallbackHandler callbackHandler = this.callbackHandlers.remove(channelId);
+                if (callbackHandler == null) {
+                    LOGGER.warn("{} Received OSLP Response after the response timeout", channelId);
+                    e.getChannel().close();
+                    return;
+                }
+                callbackHandler.cancelResponseTimeout();
+                if (this.oslpConnectionReuse) {
+                    this.addIdleChannel(e.getChannel());
+                } else {
+                    e.getChannel().close();
+                }
                 callbackHandler.getDeviceResponseHandler().handleResponse(message);
 
             } else {
@@ -102,26 +172,43 @@ public class OslpChannelHandlerClient extends OslpChannelHandler {
             final OslpResponseHandler responseHandler, final String deviceIdentification) throws IOException {
         LOGGER.info("Sending OSLP request: {}", request.getPayloadMessage());
 
+        // Reuse an open connection to the device when available.
+        if (this.oslpConnectionReuse) {
+            final Channel idleChannel = this.takeIdleChannel(deviceIdentification, address);
+            if (idleChannel != null) {
+                LOGGER.info("{} Reusing connection to device {}", idleChannel.getId(), deviceIdentification);
+                final OslpCallbackHandler callbackHandler = new OslpCallbackHandler(responseHandler);
+                this.callbackHandlers.put(idleChannel.getId(), callbackHandler);
+                try {
+                    this.write(idleChannel, address, request);
+                } catch (final RuntimeException e) {
+                    this.callbackHandlers.remove(idleChannel.getId(), callbackHandler);
+                    callbackHandler.cancelResponseTimeout();
+                    throw e;
+                }
+                return;
+            }
+        }
+
         // Open connection and send message.
         final ChannelFuture channelFuture = this.bootstrap.connect(address);
+        channelFuture.getChannel().setAttachment(deviceIdentification);
 
-        this.callbackHandlers.put(channelFuture.getChannel().getId(), new OslpCallbackHandler(responseHandler));
+        final OslpCallbackHandler callbackHandler = new OslpCallbackHandler(responseHandler);
+        this.callbackHandlers.put(channelFuture.getChannel().getId(), callbackHandler);
 
         channelFuture.addListener(new ChannelFutureListener() {
 
-            @Autowired
-            protected DeviceResponseMessageSender responseMessageSender;
-
             @Override
-            public void operationComplete(final ChannelFuture future) throws Exception {
-
-                if (future.isSuccess()) {
+            public void operationComplete(final ChannelFuture future) {
+                try {
+                    if (!future.isSuccess()) {
+                        throw new IOException("ChannelFuture - Unable to connect", future.getCause());
+                    }
                     OslpChannelHandlerClient.this.write(future, address, request);
-                    // What is this call below good for?
-                    future.getChannel().getId();
-                } else {
+                } catch (final IOException | RuntimeException e) {
                     LOGGER.info("The connection to the device {} is not successful", deviceIdentification);
-                    throw new IOException("ChannelFuture - Unable to connect");
+                    OslpChannelHandlerClient.this.failRequest(future.getChannel(), callbackHandler, e);
                 }
             }
         });
@@ -139,14 +226,151 @@ public class OslpChannelHandlerClient extends OslpChannelHandler {
             throw new IOException("Channel - Unable to connect");
         }
 
+        this.write(channel, address, request);
+    }
+
+    private void write(final Channel channel, final InetSocketAddress address, final OslpEnvelope request) {
         try {
+            this.scheduleResponseTimeout(channel, request);
             channel.write(request);
 
         } catch (final Exception e) {
-            LOGGER.error("{} Exception while writing request: {}", channelFuture.getChannel().getId(), e.getCause(), e);
-            this.callbackHandlers.remove(channel.getId());
-
+            LOGGER.error("{} Exception while writing request to: {}", channel.getId(), address, e);
             throw e;
         }
     }
+
+    /**
+     * Fail the request of a channel which could not be connected or written
+     * to, unless it has already been failed by a channel event or the response
+     * timeout.
+     */
+    private void failRequest(final Channel channel, final OslpCallbackHandler callbackHandler, final Throwable t) {
+        channel.close();
+        if (this.callbackHandlers.remove(channel.getId(), callbackHandler)) {
+            callbackHandler.cancelResponseTimeout();
+            callbackHandler.getDeviceResponseHandler().handleException(t);
+        }
+    }
+
+    /**
+     * Fail the request and close the channel when the device has not responded
+     * within the response timeout of the message type.
+     */
+    private void scheduleResponseTimeout(final Channel channel, final OslpEnvelope request) {
+        final OslpCallbackHandler callbackHandler = this.callbackHandlers.get(channel.getId());
+        if (callbackHandler == null) {
+            return;
+        }
+
+        final long responseTimeout = this.oslpResponseTimeouts.getTimeout(request);
+        callbackHandler.setResponseTimeout(this.oslpTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) {
+                if (OslpChannelHandlerClient.this.callbackHandlers.remove(channel.getId(), callbackHandler)) {
+                    OslpChannelHandlerClient.this.responseTimeoutCount.incrementAndGet();
+                    LOGGER.warn("{} No response from device {} within {} ms, closing channel", channel.getId(),
+                            channel.getAttachment(), responseTimeout);
+                    channel.close();
+                    callbackHandler.getDeviceResponseHandler().handleException(new NoDeviceResponseException());
+                }
+            }
+        }, responseTimeout, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @return the number of requests which failed because the device did not
+     *         respond in time.
+     */
+    @ManagedAttribute(description = "Number of requests which failed because the device did not respond in time")
+    public long getResponseTimeoutCount() {
+        return this.responseTimeoutCount.get();
+    }
+
+    /**
+     * @return the number of requests waiting for a response.
+     */
+    @ManagedAttribute(description = "Number of requests waiting for a response")
+    public int getPendingResponseCount() {
+        return this.callbackHandlers.size();
+    }
+
+    /**
+     * Keep the channel open for the next request to the same device, and close
+     * it when no request has been sent within the idle timeout.
+     */
+    private void addIdleChannel(final Channel channel) {
+        final String deviceIdentification = (String) channel.getAttachment();
+        if (deviceIdentification == null || !channel.isConnected()) {
+            channel.close();
+            return;
+        }
+
+        final Timeout timeout = this.oslpTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) {
+                if (OslpChannelHandlerClient.this.removeIdleChannel(channel)) {
+                    LOGGER.info("{} Closing idle connection to device {}", channel.getId(), deviceIdentification);
+                    channel.close();
+                }
+            }
+        }, this.oslpConnectionIdleTimeout, TimeUnit.MILLISECONDS);
+
+        final IdleChannel previous = this.idleChannels.put(deviceIdentification, new IdleChannel(channel, timeout));
+        if (previous != null) {
+            previous.timeout.cancel();
+            previous.channel.close();
+        }
+    }
+
+    /**
+     * @return an open idle channel to the device at the given address, or null
+     *         if not available. An idle channel to another address, for
+     *         instance because the device got a new address when it registered
+     *         again, is closed.
+     */
+    private Channel takeIdleChannel(final String deviceIdentification, final InetSocketAddress address) {
+        final IdleChannel idleChannel = this.idleChannels.remove(deviceIdentification);
+        if (idleChannel == null) {
+            return null;
+        }
+
+        idleChannel.timeout.cancel();
+        if (!idleChannel.channel.isConnected()) {
+            idleChannel.channel.close();
+            return null;
+        }
+        if (!address.equals(idleChannel.channel.getRemoteAddress())) {
+            LOGGER.info("{} Closing idle connection to device {} at {}, sending to {}", idleChannel.channel.getId(),
+                    deviceIdentification, idleChannel.channel.getRemoteAddress(), address);
+            idleChannel.channel.close();
+            return null;
+        }
+        return idleChannel.channel;
+    }
+
+    private boolean removeIdleChannel(final Channel channel) {
+        final String deviceIdentification = (String) channel.getAttachment();
+        if (deviceIdentification == null) {
+            return false;
+        }
+
+        final IdleChannel idleChannel = this.idleChannels.get(deviceIdentification);
+        if (idleChannel != null && idleChannel.channel == channel
+                && this.idleChannels.remove(deviceIdentification, idleChannel)) {
+            idleChannel.timeout.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    private static class IdleChannel {
+        private final Channel channel;
+        private final Timeout timeout;
+
+        IdleChannel(final Channel channel, final Timeout timeout) {
+            this.channel = channel;
+            this.timeout = timeout;
+        }
+    }
 }
@@ -10,12 +10,11 @@ package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.codec.binary.Base64;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.joda.time.Instant;
 import org.joda.time.format.DateTimeFormat;
@@ -28,6 +27,7 @@ import org.springframework.beans.factory.annotation.Value;
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.DeviceManagementService;
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.DeviceRegistrationService;
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpDeviceSettingsService;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSequenceNumberStore;
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSigningService;
 import com.alliander.osgp.adapter.protocol.oslp.elster.domain.entities.OslpDevice;
 import com.alliander.osgp.adapter.protocol.oslp.elster.exceptions.ProtocolAdapterException;
@@ -67,6 +67,9 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
     @Autowired
     private OslpDeviceSettingsService oslpDeviceSettingsService;
 
+    @Autowired
+    private OslpSequenceNumberStore oslpSequenceNumberStore;
+
     @Autowired
     private DeviceDataService deviceDataService;
 
@@ -82,20 +85,13 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
     @Value("#{${test.device.ips}}")
     private Map<String, String> testDeviceIps;
 
-    private final ConcurrentMap<Integer, Channel> channelMap = new ConcurrentHashMap<>();
+    @Autowired
+    private OslpChannelRegistry oslpChannelRegistry;
 
     public OslpChannelHandlerServer() {
         super(LOGGER);
     }
 
-    private Channel findChannel(final Integer channelId) {
-        return this.channelMap.get(channelId);
-    }
-
-    private void cacheChannel(final Integer channelId, final Channel channel) {
-        this.channelMap.put(channelId, channel);
-    }
-
     public void setDeviceManagementService(final DeviceManagementService deviceManagementService) {
         this.deviceManagementService = deviceManagementService;
     }
@@ -112,6 +108,18 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
         this.timeZoneOffsetMinutes = timeZoneOffsetMinutes;
     }
 
+    @Override
+    public void channelOpen(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+        this.oslpChannelRegistry.channelOpened();
+        super.channelOpen(ctx, e);
+    }
+
+    @Override
+    public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+        this.oslpChannelRegistry.channelClosed(e.getChannel().getId());
+        super.channelClosed(ctx, e);
+    }
+
     @Override
     public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
 
@@ -146,8 +154,8 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
                     return;
                 }
 
-                // Cache the channel so we can write the response to it later.
-                this.cacheChannel(channelId, e.getChannel());
+                // Register the channel so we can write the response to it later.
+                this.oslpChannelRegistry.register(channelId, e.getChannel());
 
                 // Send message to signing server to get our response signed.
                 this.oslpSigningService.buildAndSignEnvelope(message.getDeviceId(), message.getSequenceNumber(),
@@ -161,7 +169,8 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
     /**
      * Called when a signed OSLP envelope arrives from signing server. The
      * envelope will be sent to the device which is waiting for a response. The
-     * channel for the waiting device should be present in the channelMap.
+     * channel for the waiting device should be present in the channel
+     * registry.
      *
      * @param signedOslpEnvelopeDto
      *            DTO containing signed OslpEnvelope.
@@ -171,7 +180,7 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
         // Try to find the channel.
         final Integer channelId = Integer
                 .parseInt(signedOslpEnvelopeDto.getUnsignedOslpEnvelopeDto().getCorrelationUid());
-        final Channel channel = this.findChannel(channelId);
+        final Channel channel = this.oslpChannelRegistry.take(channelId);
         if (channel == null) {
             LOGGER.error("Unable to find channel for channelId: {}. Can't send response message to device.", channelId);
             return;
@@ -214,8 +223,9 @@ public class OslpChannelHandlerServer extends OslpChannelHandler {
         // Save the security related values in the OSLP database.
         oslpDevice.updateRegistrationData(deviceUid, registerRequest.getDeviceType().toString(),
                 Integer.valueOf(registerRequest.getRandomDevice()));
-        oslpDevice.setSequenceNumber(SequenceNumberUtils.convertByteArrayToInteger(sequenceNumber));
         oslpDevice = this.oslpDeviceSettingsService.updateDevice(oslpDevice);
+        this.oslpSequenceNumberStore.resetSequenceNumber(deviceIdentification,
+                SequenceNumberUtils.convertByteArrayToInteger(sequenceNumber));
 
         // Return current date and time in UTC so the device can sync the clock.
         final Oslp.RegisterDeviceResponse.Builder responseBuilder = Oslp.RegisterDeviceResponse.newBuilder()
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Registry of device initiated channels which wait for a signed response, used
+ * by the {@link OslpChannelHandlerServer}. A channel is removed when the
+ * response is taken for writing, when the channel is closed, or when no
+ * response has arrived within the timeout, in which case the channel is
+ * closed. The counters are exported over JMX.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpChannelRegistry",
+        description = "Device initiated channels waiting for a signed response")
+public class OslpChannelRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpChannelRegistry.class);
+
+    private final long timeout;
+
+    private final ConcurrentMap<Integer, PendingChannel> pendingChannels = new ConcurrentHashMap<>();
+
+    private final AtomicInteger openChannelCount = new AtomicInteger();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    @Autowired
+    private Timer oslpTimer;
+
+    /**
+     * @param timeout
+     *            time in milliseconds a channel waits for its signed response.
+     */
+    public OslpChannelRegistry(final long timeout) {
+        LOGGER.info("Created channel registry with timeout: {} ms", timeout);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Register the channel as waiting for a signed response.
+     */
+    public void register(final Integer channelId, final Channel channel) {
+        final Timeout channelTimeout = this.oslpTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) {
+                OslpChannelRegistry.this.expire(channelId);
+            }
+        }, this.timeout, TimeUnit.MILLISECONDS);
+
+        final PendingChannel previous = this.pendingChannels.put(channelId, new PendingChannel(channel,
+                channelTimeout));
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+    }
+
+    /**
+     * Remove the channel from the registry, to write the signed response to.
+     *
+     * @return the channel, or null if not (or no longer) registered.
+     */
+    public Channel take(final Integer channelId) {
+        final PendingChannel pendingChannel = this.pendingChannels.remove(channelId);
+        if (pendingChannel == null) {
+            return null;
+        }
+        pendingChannel.timeout.cancel();
+        return pendingChannel.channel;
+    }
+
+    public void channelOpened() {
+        this.openChannelCount.incrementAndGet();
+    }
+
+    /**
+     * Remove the closed channel from the registry.
+     */
+    public void channelClosed(final Integer channelId) {
+        this.openChannelCount.decrementAndGet();
+        if (this.take(channelId) != null) {
+            LOGGER.info("{} Channel closed before the response was sent", channelId);
+        }
+    }
+
+    private void expire(final Integer channelId) {
+        final PendingChannel pendingChannel = this.pendingChannels.remove(channelId);
+        if (pendingChannel != null) {
+            this.timeoutCount.incrementAndGet();
+            LOGGER.warn("{} No signed response within {} ms, closing channel", channelId, this.timeout);
+            pendingChannel.channel.close();
+        }
+    }
+
+    /**
+     * @return the number of open device initiated channels.
+     */
+    @ManagedAttribute(description = "Number of open device initiated channels")
+    public int getOpenChannelCount() {
+        return this.openChannelCount.get();
+    }
+
+    /**
+     * @return the number of channels waiting for a signed response.
+     */
+    @ManagedAttribute(description = "Number of channels waiting for a signed response")
+    public int getPendingResponseCount() {
+        return this.pendingChannels.size();
+    }
+
+    @ManagedAttribute(description = "Number of channels closed without a signed response")
+    public long getTimeoutCount() {
+        return this.timeoutCount.get();
+    }
+
+    private static class PendingChannel {
+        private final Channel channel;
+        private final Timeout timeout;
+
+        PendingChannel(final Channel channel, final Timeout timeout) {
+            this.channel = channel;
+            this.timeout = timeout;
+        }
+    }
+}
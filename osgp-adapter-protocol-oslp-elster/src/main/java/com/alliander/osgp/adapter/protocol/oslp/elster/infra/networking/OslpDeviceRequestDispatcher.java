@@ -0,0 +1,462 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.alliander.osgp.oslp.OslpEnvelope;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Sends OSLP requests to devices, with at most one request in flight per
+ * device. A request holds the slot of its device from before its sequence
+ * number is read and the envelope is signed, until its response (or failure)
+ * has been handled, so concurrent requests for one device never get the same
+ * sequence number. Requests for a device which is busy are queued in FIFO
+ * order and prepared as soon as the slot is released. Requests for different
+ * devices are handled in parallel.
+ *
+ * The queue per device is bounded; when it is full, the request is rejected.
+ * When neither a response nor a failure is reported within the release
+ * timeout after the slot was acquired, the device is released anyway, so a
+ * lost signing response or callback can not block the queue of a device
+ * forever.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpDeviceRequestDispatcher",
+        description = "Requests queued per device")
+public class OslpDeviceRequestDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpDeviceRequestDispatcher.class);
+
+    private final int maximumQueueLength;
+    private final long releaseTimeout;
+
+    private final ConcurrentMap<String, DeviceQueue> deviceQueues = new ConcurrentHashMap<>();
+
+    /**
+     * Prepares queued requests, so signing does not run on the I/O or timer
+     * thread which released the device.
+     */
+    private final ExecutorService executor;
+
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong releaseTimeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitingTimeNanos = new AtomicLong();
+    private final AtomicLong maxWaitingTimeNanos = new AtomicLong();
+
+    @Autowired
+    private OslpChannelHandlerClient oslpChannelHandler;
+
+    @Autowired
+    private Timer oslpTimer;
+
+    /**
+     * @param maximumQueueLength
+     *            maximum number of requests waiting per device, not counting
+     *            the request in flight.
+     * @param releaseTimeout
+     *            time in milliseconds after which a device is released when
+     *            no response or failure has been reported.
+     */
+    public OslpDeviceRequestDispatcher(final int maximumQueueLength, final long releaseTimeout) {
+        LOGGER.info("Created device request dispatcher with maximum queue length: {} and release timeout: {} ms",
+                maximumQueueLength, releaseTimeout);
+        this.maximumQueueLength = maximumQueueLength;
+        this.releaseTimeout = releaseTimeout;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setNameFormat("oslp-device-dispatcher-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Prepares a request for the device, for instance reading its sequence
+     * number and having it signed, once the slot of the device is acquired.
+     * When the device is idle the request is prepared on the calling thread,
+     * otherwise it is queued and prepared when the device is released. The
+     * slot is held until the prepared request has been sent with
+     * {@link #dispatch(InetSocketAddress, OslpEnvelope, OslpResponseHandler, String, String)}
+     * and its response or failure has been handled, until it is released with
+     * {@link #release(String, String)}, or until the release timeout expires.
+     *
+     * @throws IOException
+     *             when the queue of the device is full.
+     */
+    public void acquire(final String deviceIdentification, final String correlationUid,
+            final DeviceRequestTask task) throws IOException {
+        final Slot slot = new Slot(deviceIdentification, correlationUid, task);
+
+        while (true) {
+            final DeviceQueue deviceQueue = this.getDeviceQueue(deviceIdentification);
+            synchronized (deviceQueue) {
+                if (deviceQueue.removed) {
+                    // Released and removed concurrently, retry on a new queue.
+                    continue;
+                }
+                if (deviceQueue.current == null) {
+                    this.grant(deviceQueue, slot);
+                    break;
+                }
+                if (deviceQueue.pending.size() >= this.maximumQueueLength) {
+                    this.rejectedCount.incrementAndGet();
+                    LOGGER.warn("Rejecting request for device {}, {} requests are already waiting",
+                            deviceIdentification, deviceQueue.pending.size());
+                    throw new IOException("Too many pending requests for device: " + deviceIdentification);
+                }
+                deviceQueue.pending.add(slot);
+                this.queueDepth.incrementAndGet();
+                this.queuedCount.incrementAndGet();
+                LOGGER.debug("Queued request for device {}, {} requests waiting", deviceIdentification,
+                        deviceQueue.pending.size());
+                return;
+            }
+        }
+
+        try {
+            task.run();
+        } catch (final IOException | RuntimeException e) {
+            slot.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Send the prepared request to the device, using the slot acquired for
+     * the correlation uid. When the slot is no longer held, for instance
+     * because the release timeout expired while the request was being signed,
+     * the request fails: another request may have been signed with the same
+     * sequence number in the meantime.
+     *
+     * @throws IOException
+     *             when the slot of the device is no longer held, or the
+     *             request could not be sent.
+     */
+    public void dispatch(final InetSocketAddress address, final OslpEnvelope request,
+            final OslpResponseHandler responseHandler, final String deviceIdentification,
+            final String correlationUid) throws IOException {
+        final Slot slot = this.getCurrentSlot(deviceIdentification, correlationUid);
+        if (slot == null || !slot.startSending()) {
+            LOGGER.warn("Device {} is no longer held for request {}, not sending the signed request",
+                    deviceIdentification, correlationUid);
+            throw new IOException("Device " + deviceIdentification + " was released before request "
+                    + correlationUid + " could be sent");
+        }
+
+        try {
+            this.oslpChannelHandler.send(address, request, new ReleasingResponseHandler(responseHandler, slot),
+                    deviceIdentification);
+        } catch (final IOException | RuntimeException e) {
+            slot.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Release the device when the slot acquired for the correlation uid is
+     * still held, for instance when signing the request failed.
+     */
+    public void release(final String deviceIdentification, final String correlationUid) {
+        final Slot slot = this.getCurrentSlot(deviceIdentification, correlationUid);
+        if (slot != null) {
+            slot.release();
+        }
+    }
+
+    /**
+     * Stops preparing queued requests. Called by Spring when the application
+     * context is closed.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private DeviceQueue getDeviceQueue(final String deviceIdentification) {
+        final DeviceQueue deviceQueue = this.deviceQueues.get(deviceIdentification);
+        if (deviceQueue != null) {
+            return deviceQueue;
+        }
+        final DeviceQueue newDeviceQueue = new DeviceQueue();
+        final DeviceQueue existingDeviceQueue = this.deviceQueues.putIfAbsent(deviceIdentification, newDeviceQueue);
+        return existingDeviceQueue == null ? newDeviceQueue : existingDeviceQueue;
+    }
+
+    private Slot getCurrentSlot(final String deviceIdentification, final String correlationUid) {
+        final DeviceQueue deviceQueue = this.deviceQueues.get(deviceIdentification);
+        if (deviceQueue == null) {
+            return null;
+        }
+        synchronized (deviceQueue) {
+            final Slot slot = deviceQueue.current;
+            if (slot == null || !slot.correlationUid.equals(correlationUid)) {
+                return null;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Hands the slot of the device to the request and starts its release
+     * timeout. Must be called holding the lock of the device queue.
+     */
+    private void grant(final DeviceQueue deviceQueue, final Slot slot) {
+        deviceQueue.current = slot;
+        this.inFlightCount.incrementAndGet();
+        this.dispatchedCount.incrementAndGet();
+        this.recordWaitingTime(System.nanoTime() - slot.queuedAt);
+
+        slot.timeout = this.oslpTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) {
+                if (slot.release()) {
+                    OslpDeviceRequestDispatcher.this.releaseTimeoutCount.incrementAndGet();
+                    LOGGER.warn("No response or failure for request to device {} within {} ms, releasing device",
+                            slot.deviceIdentification, OslpDeviceRequestDispatcher.this.releaseTimeout);
+                }
+            }
+        }, this.releaseTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hand the device to the next queued request, or mark the device idle when
+     * no request is waiting.
+     */
+    private void release(final Slot slot) {
+        final DeviceQueue deviceQueue = this.deviceQueues.get(slot.deviceIdentification);
+        if (deviceQueue == null) {
+            return;
+        }
+        final Slot next;
+        synchronized (deviceQueue) {
+            if (deviceQueue.current != slot) {
+                return;
+            }
+            deviceQueue.current = null;
+            next = deviceQueue.pending.poll();
+            if (next == null) {
+                deviceQueue.removed = true;
+                this.deviceQueues.remove(slot.deviceIdentification, deviceQueue);
+                return;
+            }
+            this.queueDepth.decrementAndGet();
+            this.grant(deviceQueue, next);
+        }
+
+        try {
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    OslpDeviceRequestDispatcher.this.prepare(next);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.error("Unable to prepare queued request for device {}", next.deviceIdentification, e);
+            next.release();
+            next.task.handleException(e);
+        }
+    }
+
+    private void prepare(final Slot slot) {
+        try {
+            slot.task.run();
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error("Unable to prepare queued request for device {}", slot.deviceIdentification, e);
+            slot.release();
+            slot.task.handleException(e);
+        }
+    }
+
+    private void recordWaitingTime(final long waitingTimeNanos) {
+        this.totalWaitingTimeNanos.addAndGet(waitingTimeNanos);
+
+        long max = this.maxWaitingTimeNanos.get();
+        while (waitingTimeNanos > max && !this.maxWaitingTimeNanos.compareAndSet(max, waitingTimeNanos)) {
+            max = this.maxWaitingTimeNanos.get();
+        }
+    }
+
+    /**
+     * @return the number of requests waiting for a device, over all devices.
+     */
+    @ManagedAttribute(description = "Number of requests waiting for a device, over all devices")
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    /**
+     * @return the number of requests waiting for the given device.
+     */
+    public int getQueueDepth(final String deviceIdentification) {
+        final DeviceQueue deviceQueue = this.deviceQueues.get(deviceIdentification);
+        if (deviceQueue == null) {
+            return 0;
+        }
+        synchronized (deviceQueue) {
+            return deviceQueue.pending.size();
+        }
+    }
+
+    /**
+     * @return the number of devices with a request in flight.
+     */
+    @ManagedAttribute(description = "Number of devices with a request in flight")
+    public int getInFlightCount() {
+        return this.inFlightCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests which acquired their device")
+    public long getDispatchedCount() {
+        return this.dispatchedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests which waited for their device")
+    public long getQueuedCount() {
+        return this.queuedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests rejected because the queue of the device was full")
+    public long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of devices released by the release timeout")
+    public long getReleaseTimeoutCount() {
+        return this.releaseTimeoutCount.get();
+    }
+
+    /**
+     * @return the average time in milliseconds a request waited for its
+     *         device, including requests which did not wait at all.
+     */
+    @ManagedAttribute(description = "Average time in milliseconds a request waited for its device")
+    public long getAverageWaitingTimeMillis() {
+        final long count = this.dispatchedCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalWaitingTimeNanos.get() / count);
+    }
+
+    /**
+     * @return the maximum time in milliseconds a request waited for its
+     *         device.
+     */
+    @ManagedAttribute(description = "Maximum time in milliseconds a request waited for its device")
+    public long getMaxWaitingTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitingTimeNanos.get());
+    }
+
+    /**
+     * Prepares a request once the slot of its device is acquired.
+     */
+    public interface DeviceRequestTask {
+
+        void run() throws IOException;
+
+        /**
+         * Called when a queued request could not be prepared.
+         */
+        void handleException(Throwable t);
+    }
+
+    /**
+     * Releases the device after the response or failure has been handled by
+     * the wrapped handler.
+     */
+    private static class ReleasingResponseHandler implements OslpResponseHandler {
+        private final OslpResponseHandler responseHandler;
+        private final Slot slot;
+
+        ReleasingResponseHandler(final OslpResponseHandler responseHandler, final Slot slot) {
+            this.responseHandler = responseHandler;
+            this.slot = slot;
+        }
+
+        @Override
+        public void handleResponse(final OslpEnvelope oslpResponse) {
+            try {
+                this.responseHandler.handleResponse(oslpResponse);
+            } finally {
+                this.slot.release();
+            }
+        }
+
+        @Override
+        public void handleException(final Throwable t) {
+            try {
+                this.responseHandler.handleException(t);
+            } finally {
+                this.slot.release();
+            }
+        }
+    }
+
+    private static class DeviceQueue {
+        private final Deque<Slot> pending = new ArrayDeque<>();
+        private Slot current;
+        private boolean removed;
+    }
+
+    /**
+     * The turn of one request on its device, from acquiring the device until
+     * it is released.
+     */
+    private class Slot {
+        private final String deviceIdentification;
+        private final String correlationUid;
+        private final DeviceRequestTask task;
+        private final long queuedAt = System.nanoTime();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile Timeout timeout;
+
+        Slot(final String deviceIdentification, final String correlationUid, final DeviceRequestTask task) {
+            this.deviceIdentification = deviceIdentification;
+            this.correlationUid = correlationUid;
+            this.task = task;
+        }
+
+        /**
+         * @return false when a request has already been sent on this slot.
+         */
+        boolean startSending() {
+            return this.sending.compareAndSet(false, true);
+        }
+
+        boolean release() {
+            if (!this.released.compareAndSet(false, true)) {
+                return false;
+            }
+            if (this.timeout != null) {
+                this.timeout.cancel();
+            }
+            OslpDeviceRequestDispatcher.this.inFlightCount.decrementAndGet();
+            OslpDeviceRequestDispatcher.this.release(this);
+            return true;
+        }
+    }
+}
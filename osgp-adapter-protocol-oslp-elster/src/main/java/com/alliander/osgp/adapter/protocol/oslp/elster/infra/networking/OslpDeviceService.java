@@ -9,6 +9,7 @@ package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
@@ -30,6 +31,7 @@ import org.springframework.stereotype.Component;
 
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.mapping.OslpMapper;
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpDeviceSettingsService;
+import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSequenceNumberStore;
 import com.alliander.osgp.adapter.protocol.oslp.elster.application.services.oslp.OslpSigningService;
 import com.alliander.osgp.adapter.protocol.oslp.elster.device.DeviceMessageStatus;
 import com.alliander.osgp.adapter.protocol.oslp.elster.device.DeviceRequest;
@@ -74,8 +76,12 @@ import com.alliander.osgp.oslp.Oslp.GetFirmwareVersionRequest;
 import com.alliander.osgp.oslp.Oslp.GetStatusRequest;
 import com.alliander.osgp.oslp.Oslp.SetScheduleRequest;
 import com.alliander.osgp.oslp.OslpEnvelope;
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
 import com.alliander.osgp.shared.exceptionhandling.ComponentType;
 import com.alliander.osgp.shared.exceptionhandling.ConnectionFailureException;
+import com.alliander.osgp.shared.exceptionhandling.OsgpException;
+import com.alliander.osgp.shared.infra.jms.ResponseMessage;
+import com.alliander.osgp.shared.infra.jms.ResponseMessageResultType;
 import com.google.protobuf.ByteString;
 
 @Component
@@ -90,6 +96,9 @@ public class OslpDeviceService implements DeviceService {
     @Autowired
     private OslpChannelHandlerClient oslpChannelHandler;
 
+    @Autowired
+    private OslpDeviceRequestDispatcher oslpDeviceRequestDispatcher;
+
     @Autowired
     private OslpMapper mapper;
 
@@ -105,6 +114,9 @@ public class OslpDeviceService implements DeviceService {
     @Autowired
     private OslpDeviceSettingsService oslpDeviceSettingsService;
 
+    @Autowired
+    private OslpSequenceNumberStore oslpSequenceNumberStore;
+
     @Autowired
     private OslpLogItemRequestMessageSender oslpLogItemRequestMessageSender;
 
@@ -1791,9 +1803,38 @@ public class OslpDeviceService implements DeviceService {
         deviceResponseHandler.handleResponse(deviceResponse);
     }
 
+    /**
+     * Acquire the device before reading its sequence number and signing the
+     * envelope, so concurrent requests for the same device are signed with
+     * consecutive sequence numbers. The device is held until the response of
+     * the signed request has been handled.
+     */
     private void buildAndSignEnvelope(final DeviceRequest deviceRequest, final Oslp.Message payloadMessage,
             final Serializable extraData) {
 
+        try {
+            this.oslpDeviceRequestDispatcher.acquire(deviceRequest.getDeviceIdentification(),
+                    deviceRequest.getCorrelationUid(), new OslpDeviceRequestDispatcher.DeviceRequestTask() {
+
+                        @Override
+                        public void run() {
+                            OslpDeviceService.this.signEnvelope(deviceRequest, payloadMessage, extraData);
+                        }
+
+                        @Override
+                        public void handleException(final Throwable t) {
+                            OslpDeviceService.this.handleSignEnvelopeException(t, deviceRequest, payloadMessage,
+                                    extraData);
+                        }
+                    });
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void signEnvelope(final DeviceRequest deviceRequest, final Oslp.Message payloadMessage,
+            final Serializable extraData) {
+
         final String deviceIdentification = deviceRequest.getDeviceIdentification();
         final String organisationIdentification = deviceRequest.getOrganisationIdentification();
         final String correlationUid = deviceRequest.getCorrelationUid();
@@ -1808,13 +1849,37 @@ public class OslpDeviceService implements DeviceService {
         final OslpDevice oslpDevice = this.oslpDeviceSettingsService
                 .getDeviceByDeviceIdentification(deviceIdentification);
         final byte[] deviceId = Base64.decodeBase64(oslpDevice.getDeviceUid());
-        final byte[] sequenceNumber = SequenceNumberUtils.convertIntegerToByteArray(oslpDevice.getSequenceNumber());
+        final byte[] sequenceNumber = SequenceNumberUtils
+                .convertIntegerToByteArray(this.oslpSequenceNumberStore.getSequenceNumber(deviceIdentification));
 
         this.oslpSigningService.buildAndSignEnvelope(organisationIdentification, deviceIdentification, correlationUid,
                 deviceId, sequenceNumber, ipAddress, domain, domainVersion, messageType, retryCount, isScheduled,
                 payloadMessage, extraData);
     }
 
+    /**
+     * Report a queued request which could not be signed, the same way as a
+     * failure of the signing server.
+     */
+    private void handleSignEnvelopeException(final Throwable t, final DeviceRequest deviceRequest,
+            final Oslp.Message payloadMessage, final Serializable extraData) {
+
+        final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto = new UnsignedOslpEnvelopeDto(null, null,
+                payloadMessage, deviceRequest.getIpAddress(), deviceRequest.getDomain(),
+                deviceRequest.getDomainVersion(), deviceRequest.getMessageType(), deviceRequest.getRetryCount(),
+                deviceRequest.isScheduled(), deviceRequest.getOrganisationIdentification(),
+                deviceRequest.getCorrelationUid(), extraData);
+        final ResponseMessage responseMessage = ResponseMessage.newResponseMessageBuilder()
+                .withCorrelationUid(deviceRequest.getCorrelationUid())
+                .withOrganisationIdentification(deviceRequest.getOrganisationIdentification())
+                .withDeviceIdentification(deviceRequest.getDeviceIdentification())
+                .withResult(ResponseMessageResultType.NOT_OK)
+                .withOsgpException(new OsgpException(ComponentType.PROTOCOL_OSLP, "Failed to sign request", t))
+                .withDataObject(unsignedOslpEnvelopeDto).build();
+
+        this.oslpSigningService.handleError(deviceRequest.getDeviceIdentification(), responseMessage);
+    }
+
     private Oslp.LightValue buildLightValue(final LightValueDto lightValue) {
         final Oslp.LightValue.Builder builder = Oslp.LightValue.newBuilder();
 
@@ -1875,17 +1940,14 @@ public class OslpDeviceService implements DeviceService {
     private void updateSequenceNumber(final String deviceIdentification, final OslpEnvelope oslpResponse) {
         final Integer sequenceNumber = SequenceNumberUtils.convertByteArrayToInteger(oslpResponse.getSequenceNumber());
 
-        final OslpDevice oslpDevice = this.oslpDeviceSettingsService
-                .getDeviceByDeviceIdentification(deviceIdentification);
-        oslpDevice.setSequenceNumber(sequenceNumber);
-        this.oslpDeviceSettingsService.updateDeviceAndForceSave(oslpDevice);
+        this.oslpSequenceNumberStore.setSequenceNumber(deviceIdentification, sequenceNumber);
     }
 
     private void sendMessage(final String ipAddress, final OslpEnvelope oslpRequest,
             final OslpResponseHandler oslpResponseHandler, final DeviceRequest deviceRequest) throws IOException {
         try {
-            this.oslpChannelHandler.send(this.createAddress(ipAddress), oslpRequest, oslpResponseHandler,
-                    deviceRequest.getDeviceIdentification());
+            this.oslpDeviceRequestDispatcher.dispatch(this.createAddress(ipAddress), oslpRequest,
+                    oslpResponseHandler, deviceRequest.getDeviceIdentification(), deviceRequest.getCorrelationUid());
         } catch (final Exception e) {
             LOGGER.error("Exception during sendMessage()", e);
             throw new IOException(e.getMessage());
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Bounded cache of decoded device public keys, used by the
+ * {@link OslpSecurityHandler} to avoid a database lookup and key decoding for
+ * every received message. Entries expire after a fixed time to live and are
+ * invalidated when the public key of a device is updated or revoked, or when
+ * the device is removed.
+ *
+ * A key which was being loaded while an invalidation took place is not kept in
+ * the cache, as it may have been read before the change was committed.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpPublicKeyCache",
+        description = "Decoded device public keys")
+public class OslpPublicKeyCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpPublicKeyCache.class);
+
+    private static final String DEVICE_UID_PREFIX = "uid:";
+    private static final String DEVICE_IDENTIFICATION_PREFIX = "id:";
+
+    private final Cache<String, PublicKey> publicKeys;
+
+    /**
+     * Incremented by every invalidation, to detect loads overlapping with an
+     * invalidation.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public OslpPublicKeyCache(final long maximumSize, final long timeToLive) {
+        LOGGER.info("Created public key cache with maximum size: {} and time to live: {} ms", maximumSize,
+                timeToLive);
+        this.publicKeys = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, TimeUnit.MILLISECONDS).recordStats().build();
+    }
+
+    /**
+     * @return the public key, from the cache or else from the loader, or null
+     *         if the loader returns null.
+     */
+    public PublicKey getByDeviceUid(final String deviceUid, final Callable<PublicKey> loader)
+            throws IOException, GeneralSecurityException {
+        return this.get(DEVICE_UID_PREFIX + deviceUid, loader);
+    }
+
+    /**
+     * @return the public key, from the cache or else from the loader, or null
+     *         if the loader returns null.
+     */
+    public PublicKey getByDeviceIdentification(final String deviceIdentification,
+            final Callable<PublicKey> loader) throws IOException, GeneralSecurityException {
+        return this.get(DEVICE_IDENTIFICATION_PREFIX + deviceIdentification, loader);
+    }
+
+    private PublicKey get(final String key, final Callable<PublicKey> loader)
+            throws IOException, GeneralSecurityException {
+        final long invalidationsBefore = this.invalidations.get();
+        try {
+            final PublicKey publicKey = this.publicKeys.get(key, loader);
+            if (this.invalidations.get() != invalidationsBefore) {
+                // The key may have been loaded before an update was committed.
+                this.publicKeys.invalidate(key);
+            }
+            return publicKey;
+        } catch (final InvalidCacheLoadException e) {
+            // The loader returned null, nothing has been cached.
+            return null;
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.propagateIfInstanceOf(e.getCause(), GeneralSecurityException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Remove the public key of a device from the cache.
+     *
+     * @param deviceIdentification
+     *            identification of the device.
+     * @param deviceUid
+     *            uid of the device, may be null if the device has not
+     *            registered yet.
+     */
+    public void invalidate(final String deviceIdentification, final String deviceUid) {
+        LOGGER.debug("Invalidating public key of device: {}", deviceIdentification);
+        this.invalidations.incrementAndGet();
+        this.publicKeys.invalidate(DEVICE_IDENTIFICATION_PREFIX + deviceIdentification);
+        if (deviceUid != null) {
+            this.publicKeys.invalidate(DEVICE_UID_PREFIX + deviceUid);
+        }
+    }
+
+    /**
+     * Remove the public key of a device from the cache once the current
+     * transaction has been committed, so a concurrent lookup can not cache the
+     * key as it was before the transaction. Without a transaction the key is
+     * removed immediately.
+     *
+     * @see #invalidate(String, String)
+     */
+    public void invalidateAfterCommit(final String deviceIdentification, final String deviceUid) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.invalidate(deviceIdentification, deviceUid);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                OslpPublicKeyCache.this.invalidate(deviceIdentification, deviceUid);
+            }
+        });
+    }
+
+    @ManagedAttribute(description = "Number of lookups found in the cache")
+    public long getHitCount() {
+        return this.publicKeys.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of lookups loaded from the database")
+    public long getMissCount() {
+        return this.publicKeys.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Number of cached public keys")
+    public long getSize() {
+        return this.publicKeys.size();
+    }
+}
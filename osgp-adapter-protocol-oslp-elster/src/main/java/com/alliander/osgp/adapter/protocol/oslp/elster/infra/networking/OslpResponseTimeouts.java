@@ -0,0 +1,68 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alliander.osgp.oslp.OslpEnvelope;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+
+/**
+ * Time a device gets to respond to a request, by message type. The message
+ * type is the name of the request field of the OSLP message, for instance
+ * 'getPowerUsageHistoryRequest'.
+ */
+public class OslpResponseTimeouts {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpResponseTimeouts.class);
+
+    private final long defaultTimeout;
+
+    private final Map<String, Long> timeouts = new HashMap<>();
+
+    /**
+     * @param defaultTimeout
+     *            timeout in milliseconds for message types without a specific
+     *            timeout.
+     * @param timeouts
+     *            comma separated list of messageType:timeout pairs, may be
+     *            empty.
+     */
+    public OslpResponseTimeouts(final long defaultTimeout, final String timeouts) {
+        this.defaultTimeout = defaultTimeout;
+        for (final String entry : StringUtils.split(StringUtils.defaultString(timeouts), ',')) {
+            final String[] messageTypeAndTimeout = StringUtils.split(entry.trim(), ':');
+            if (messageTypeAndTimeout.length != 2) {
+                throw new IllegalArgumentException("Invalid response timeout: " + entry);
+            }
+            this.timeouts.put(messageTypeAndTimeout[0].trim(), Long.parseLong(messageTypeAndTimeout[1].trim()));
+        }
+        LOGGER.info("Response timeout: {} ms, by message type: {}", defaultTimeout, this.timeouts);
+    }
+
+    /**
+     * @return the response timeout of the request in milliseconds.
+     */
+    public long getTimeout(final OslpEnvelope request) {
+        if (this.timeouts.isEmpty()) {
+            return this.defaultTimeout;
+        }
+        for (final FieldDescriptor field : request.getPayloadMessage().getAllFields().keySet()) {
+            final Long timeout = this.timeouts.get(field.getName());
+            if (timeout != null) {
+                return timeout;
+            }
+        }
+        return this.defaultTimeout;
+    }
+}
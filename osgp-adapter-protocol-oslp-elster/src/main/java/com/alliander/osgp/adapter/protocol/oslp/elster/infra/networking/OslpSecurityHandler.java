@@ -7,7 +7,10 @@
  */
 package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
 
+import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.PublicKey;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.codec.binary.Base64;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -35,39 +38,64 @@ public class OslpSecurityHandler extends SimpleChannelHandler {
     @Autowired
     private OslpDeviceSettingsService oslpDeviceSettingsService;
 
+    @Autowired
+    private OslpPublicKeyCache oslpPublicKeyCache;
+
     @Override
     public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent evt) throws Exception {
         final OslpEnvelope message = (OslpEnvelope) evt.getMessage();
 
         // Upon first registration, a deviceUid is unknown within the platform.
         // Search based on deviceIdentification in this case.
-        OslpDevice oslpDevice = null;
-
+        final PublicKey publicKey;
         if (message.getPayloadMessage().hasRegisterDeviceRequest()) {
-            final String deviceIdentification = message.getPayloadMessage().getRegisterDeviceRequest()
-                    .getDeviceIdentification();
-
-            oslpDevice = this.oslpDeviceSettingsService.getDeviceByDeviceIdentification(deviceIdentification);
+            publicKey = this.getPublicKeyByDeviceIdentification(
+                    message.getPayloadMessage().getRegisterDeviceRequest().getDeviceIdentification());
         } else {
-            oslpDevice = this.oslpDeviceSettingsService
-                    .getDeviceByUid(Base64.encodeBase64String(message.getDeviceId()));
-        }
-
-        if (oslpDevice == null) {
-            LOGGER.warn("Received message from unknown device.");
-        } else if (oslpDevice.getPublicKey() == null) {
-            LOGGER.warn("Received message from device without public key: {}", oslpDevice.getDeviceIdentification());
+            publicKey = this.getPublicKeyByDeviceUid(Base64.encodeBase64String(message.getDeviceId()));
         }
 
         // When device is unknown or publickey is not available, the message is
         // not valid.
-        if (oslpDevice != null && oslpDevice.getPublicKey() != null) {
-            final PublicKey publicKey = CertificateHelper.createPublicKeyFromBase64(oslpDevice.getPublicKey(),
-                    this.oslpKeyType, this.oslpSignatureProvider);
-
+        if (publicKey != null) {
             message.validate(publicKey);
         }
 
         ctx.sendUpstream(evt);
     }
+
+    private PublicKey getPublicKeyByDeviceIdentification(final String deviceIdentification)
+            throws IOException, GeneralSecurityException {
+        return this.oslpPublicKeyCache.getByDeviceIdentification(deviceIdentification, new Callable<PublicKey>() {
+            @Override
+            public PublicKey call() throws IOException, GeneralSecurityException {
+                return OslpSecurityHandler.this.createPublicKey(OslpSecurityHandler.this.oslpDeviceSettingsService
+                        .getDeviceByDeviceIdentification(deviceIdentification));
+            }
+        });
+    }
+
+    private PublicKey getPublicKeyByDeviceUid(final String deviceUid) throws IOException, GeneralSecurityException {
+        return this.oslpPublicKeyCache.getByDeviceUid(deviceUid, new Callable<PublicKey>() {
+            @Override
+            public PublicKey call() throws IOException, GeneralSecurityException {
+                return OslpSecurityHandler.this
+                        .createPublicKey(OslpSecurityHandler.this.oslpDeviceSettingsService.getDeviceByUid(deviceUid));
+            }
+        });
+    }
+
+    private PublicKey createPublicKey(final OslpDevice oslpDevice) throws IOException, GeneralSecurityException {
+        if (oslpDevice == null) {
+            LOGGER.warn("Received message from unknown device.");
+            return null;
+        }
+        if (oslpDevice.getPublicKey() == null) {
+            LOGGER.warn("Received message from device without public key: {}", oslpDevice.getDeviceIdentification());
+            return null;
+        }
+
+        return CertificateHelper.createPublicKeyFromBase64(oslpDevice.getPublicKey(), this.oslpKeyType,
+                this.oslpSignatureProvider);
+    }
 }
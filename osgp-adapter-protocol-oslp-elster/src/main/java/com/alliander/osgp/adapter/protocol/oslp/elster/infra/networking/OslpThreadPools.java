@@ -0,0 +1,206 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.infra.networking;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.channel.socket.nio.NioClientBossPool;
+import org.jboss.netty.channel.socket.nio.NioServerBossPool;
+import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+import org.jboss.netty.util.ExternalResourceReleasable;
+import org.jboss.netty.util.ThreadNameDeterminer;
+import org.jboss.netty.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Thread pools of the client and server bootstraps. Both bootstraps share one
+ * pool with a fixed number of NIO workers, so the number of I/O threads does
+ * not depend on the number of connections, and one bounded execution pool
+ * which handles received messages. Each bootstrap has a single boss thread.
+ * Threads are named oslp-client-boss, oslp-server-boss, oslp-worker-n and
+ * oslp-execution-n, and keep these names while running.
+ *
+ * The execution pool reports its utilization over JMX. Boss and worker threads
+ * run their selector loop for as long as they live, so for the I/O pools only
+ * the number of threads is reported, which stays fixed however many devices
+ * connect.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.adapter.protocol.oslp.elster:type=OslpThreadPools",
+        description = "Netty I/O and execution thread pools")
+public class OslpThreadPools implements ExternalResourceReleasable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpThreadPools.class);
+
+    private static final long TERMINATION_TIMEOUT = 10000;
+
+    private final int workerCount;
+
+    private final ThreadPoolExecutor clientBossExecutor;
+    private final ThreadPoolExecutor serverBossExecutor;
+    private final ThreadPoolExecutor workerExecutor;
+
+    private final NioClientBossPool clientBossPool;
+    private final NioServerBossPool serverBossPool;
+    private final NioWorkerPool workerPool;
+
+    private final OrderedMemoryAwareThreadPoolExecutor executionExecutor;
+
+    /**
+     * @param workerCount
+     *            number of NIO workers shared by the client and the server, 0
+     *            uses twice the number of available processors.
+     * @param timer
+     *            timer used for connect timeouts of the client.
+     * @param executionPoolSize
+     *            number of threads handling received messages.
+     * @param maxChannelMemory
+     *            maximum size in bytes of queued messages per channel, 0
+     *            disables.
+     * @param maxTotalMemory
+     *            maximum size in bytes of all queued messages, 0 disables.
+     */
+    public OslpThreadPools(final int workerCount, final Timer timer, final int executionPoolSize,
+            final long maxChannelMemory, final long maxTotalMemory) {
+        this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors() * 2;
+        LOGGER.info("Created OSLP thread pools with {} workers", this.workerCount);
+
+        this.clientBossExecutor = this.createExecutor(1, "oslp-client-boss");
+        this.serverBossExecutor = this.createExecutor(1, "oslp-server-boss");
+        this.workerExecutor = this.createExecutor(this.workerCount, "oslp-worker-%d");
+
+        this.clientBossPool = new NioClientBossPool(this.clientBossExecutor, 1, timer, ThreadNameDeterminer.CURRENT);
+        this.serverBossPool = new NioServerBossPool(this.serverBossExecutor, 1, ThreadNameDeterminer.CURRENT);
+        this.workerPool = new NioWorkerPool(this.workerExecutor, this.workerCount, ThreadNameDeterminer.CURRENT);
+
+        this.executionExecutor = new OrderedMemoryAwareThreadPoolExecutor(executionPoolSize, maxChannelMemory,
+                maxTotalMemory, 30, TimeUnit.SECONDS,
+                new ThreadFactoryBuilder().setNameFormat("oslp-execution-%d").build());
+    }
+
+    /**
+     * Each boss and worker occupies a thread for its lifetime, so the pool is
+     * sized to exactly the number of bosses or workers.
+     */
+    private ThreadPoolExecutor createExecutor(final int threads, final String nameFormat) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+    }
+
+    public NioClientBossPool getClientBossPool() {
+        return this.clientBossPool;
+    }
+
+    public NioServerBossPool getServerBossPool() {
+        return this.serverBossPool;
+    }
+
+    public NioWorkerPool getWorkerPool() {
+        return this.workerPool;
+    }
+
+    public OrderedMemoryAwareThreadPoolExecutor getExecutionExecutor() {
+        return this.executionExecutor;
+    }
+
+    /**
+     * Shuts down the pools, which is done here only as the pools are shared by
+     * both bootstraps. The bosses stop first, so no new channels are accepted
+     * or connected while the workers close the remaining channels. Called by
+     * Spring when the application context is closed.
+     */
+    @Override
+    public void releaseExternalResources() {
+        this.clientBossPool.shutdown();
+        this.serverBossPool.shutdown();
+        this.workerPool.shutdown();
+        this.terminate(this.clientBossExecutor);
+        this.terminate(this.serverBossExecutor);
+        this.terminate(this.workerExecutor);
+        this.terminate(this.executionExecutor);
+    }
+
+    /**
+     * Lets running tasks finish for a while, before interrupting them.
+     */
+    private void terminate(final ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("OSLP thread pool did not stop within {} ms, interrupting its threads",
+                        TERMINATION_TIMEOUT);
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of NIO workers shared by the client and the server")
+    public int getWorkerCount() {
+        return this.workerCount;
+    }
+
+    /**
+     * @return the number of I/O threads, bosses and workers.
+     */
+    @ManagedAttribute(description = "Number of I/O threads, bosses and workers")
+    public int getIoThreadCount() {
+        return this.clientBossExecutor.getPoolSize() + this.serverBossExecutor.getPoolSize()
+                + this.workerExecutor.getPoolSize();
+    }
+
+    /**
+     * @return the number of execution threads handling a message.
+     */
+    @ManagedAttribute(description = "Number of execution threads handling a message")
+    public int getExecutionActiveCount() {
+        return this.executionExecutor.getActiveCount();
+    }
+
+    /**
+     * @return the number of started execution threads.
+     */
+    @ManagedAttribute(description = "Number of started execution threads")
+    public int getExecutionPoolSize() {
+        return this.executionExecutor.getPoolSize();
+    }
+
+    /**
+     * @return the number of received messages waiting for an execution thread.
+     */
+    @ManagedAttribute(description = "Number of received messages waiting for an execution thread")
+    public int getExecutionQueueSize() {
+        return this.executionExecutor.getQueue().size();
+    }
+
+    /**
+     * @return the number of received messages handled by the execution pool.
+     */
+    @ManagedAttribute(description = "Number of received messages handled by the execution pool")
+    public long getExecutionCompletedCount() {
+        return this.executionExecutor.getCompletedTaskCount();
+    }
+
+    /**
+     * @return the ratio of busy to available execution threads.
+     */
+    @ManagedAttribute(description = "Ratio of busy to available execution threads")
+    public double getExecutionUtilization() {
+        return (double) this.executionExecutor.getActiveCount() / this.executionExecutor.getMaximumPoolSize();
+    }
+}
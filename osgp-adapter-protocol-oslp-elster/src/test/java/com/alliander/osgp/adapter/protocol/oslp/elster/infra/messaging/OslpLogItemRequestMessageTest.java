@@ -0,0 +1,66 @@
+/**
+ * Copyright 2017 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.adapter.protocol.oslp.elster.infra.messaging;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alliander.osgp.oslp.Oslp;
+import com.google.protobuf.ByteString;
+
+public class OslpLogItemRequestMessageTest {
+
+    @Test
+    public void encodedMessageMatchesCArray() {
+        final byte[] bytes = new byte[] { 0x00, 0x0F, (byte) 0xA5, (byte) 0xFF };
+
+        Assert.assertEquals("0x00, 0x0F, 0xA5, 0xFF", OslpLogItemRequestMessage.bytesToCArray(bytes, 8000));
+        Assert.assertEquals(this.slowCArray(bytes, 8000), OslpLogItemRequestMessage.bytesToCArray(bytes, 8000));
+        Assert.assertEquals("", OslpLogItemRequestMessage.bytesToCArray(new byte[0], 8000));
+    }
+
+    @Test
+    public void encodedMessageIsTruncated() {
+        final byte[] bytes = new byte[5000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        for (final int maxLength : new int[] { 1, 4, 5, 6, 7, 8000 }) {
+            Assert.assertEquals(this.slowCArray(bytes, maxLength),
+                    OslpLogItemRequestMessage.bytesToCArray(bytes, maxLength));
+        }
+    }
+
+    @Test
+    public void decodedMessageIsTruncated() {
+        final Oslp.SetLightRequest.Builder builder = Oslp.SetLightRequest.newBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.addValues(Oslp.LightValue.newBuilder().setIndex(ByteString.copyFrom(new byte[] { (byte) i }))
+                    .setOn(i % 2 == 0));
+        }
+        final Oslp.Message message = Oslp.Message.newBuilder().setSetLightRequest(builder).build();
+
+        Assert.assertEquals(message.toString(), OslpLogItemRequestMessage.messageToString(message, 1000000));
+        Assert.assertEquals(StringUtils.substring(message.toString(), 0, 8000),
+                OslpLogItemRequestMessage.messageToString(message, 8000));
+    }
+
+    /**
+     * Previous implementation of the encoded message.
+     */
+    private String slowCArray(final byte[] bytes, final int maxLength) {
+        String s = javax.xml.bind.DatatypeConverter.printHexBinary(bytes);
+        s = s.replaceAll("(.{2})", ", 0x$1");
+        s = s.substring(2);
+        return StringUtils.substring(s, 0, maxLength);
+    }
+}
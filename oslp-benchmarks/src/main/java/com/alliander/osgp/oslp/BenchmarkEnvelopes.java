@@ -0,0 +1,50 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.security.PrivateKey;
+
+import com.alliander.osgp.oslp.Oslp.Message;
+
+/**
+ * Envelopes used by the benchmarks.
+ */
+final class BenchmarkEnvelopes {
+
+    static final byte[] DEVICE_ID = new byte[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A,
+            0x0B };
+
+    static final byte[] SEQUENCE_NUMBER = new byte[] { 0x01, 0x02 };
+
+    private BenchmarkEnvelopes() {
+        // Only static methods.
+    }
+
+    /**
+     * @return an envelope with an arbitrary security key, as received from a
+     *         device before validation.
+     */
+    static OslpEnvelope received(final BenchmarkSignature signature, final Message payloadMessage) {
+        final byte[] securityKey = new byte[OslpEnvelope.SECURITY_KEY_LENGTH];
+        for (int i = 0; i < securityKey.length; i++) {
+            securityKey[i] = (byte) i;
+        }
+        return new OslpEnvelope(signature.getSignature(), signature.getProvider(), securityKey,
+                SEQUENCE_NUMBER.clone(), DEVICE_ID.clone(), payloadMessage);
+    }
+
+    /**
+     * @return an envelope signed with the private key.
+     */
+    static OslpEnvelope signed(final BenchmarkSignature signature, final PrivateKey privateKey,
+            final Message payloadMessage) {
+        return new OslpEnvelope.Builder().withSignature(signature.getSignature())
+                .withProvider(signature.getProvider()).withPrimaryKey(privateKey).withDeviceId(DEVICE_ID)
+                .withSequenceNumber(SEQUENCE_NUMBER).withPayloadMessage(payloadMessage).build();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import com.alliander.osgp.oslp.Oslp.Message;
+import com.google.protobuf.ByteString;
+
+/**
+ * Realistic OSLP payloads used by the benchmarks, from a small status response
+ * to a full page of power usage history.
+ */
+public enum BenchmarkPayload {
+    /**
+     * Status response of a device with six light values.
+     */
+    GET_STATUS {
+        @Override
+        Message create() {
+            final Oslp.GetStatusResponse.Builder getStatusResponse = Oslp.GetStatusResponse.newBuilder()
+                    .setStatus(Oslp.Status.OK).setPreferredLinktype(Oslp.LinkType.ETHERNET)
+                    .setActualLinktype(Oslp.LinkType.ETHERNET).setLightType(Oslp.LightType.RELAY)
+                    .setEventNotificationMask(0xFF);
+            for (int i = 1; i <= 6; i++) {
+                getStatusResponse.addValue(lightValue(i));
+            }
+            return Message.newBuilder().setGetStatusResponse(getStatusResponse).build();
+        }
+    },
+    /**
+     * Set schedule request with 50 entries, the maximum a device accepts.
+     */
+    SET_SCHEDULE {
+        @Override
+        Message create() {
+            final Oslp.SetScheduleRequest.Builder setScheduleRequest = Oslp.SetScheduleRequest.newBuilder()
+                    .setScheduleType(Oslp.RelayType.LIGHT)
+                    .setPageInfo(Oslp.PageInfo.newBuilder().setCurrentPage(1).setPageSize(50).setTotalPages(1));
+            for (int i = 0; i < 50; i++) {
+                setScheduleRequest.addSchedules(Oslp.Schedule.newBuilder()
+                        .setWeekday(Oslp.Weekday.valueOf(i % 7 + 1)).setStartDay("20170101").setEndDay("20171231")
+                        .setActionTime(Oslp.ActionTime.ABSOLUTETIME).setTime(String.format("%02d%02d00", i % 24, i))
+                        .addValue(lightValue(i % 6 + 1)).setTriggerType(Oslp.TriggerType.LIGHT_TRIGGER)
+                        .setMinimumLightsOn(600).setIndex(i).setIsEnabled(true));
+            }
+            return Message.newBuilder().setSetScheduleRequest(setScheduleRequest).build();
+        }
+    },
+    /**
+     * Full page (20 records) of SSLD power usage history.
+     */
+    POWER_USAGE_HISTORY {
+        @Override
+        Message create() {
+            final Oslp.GetPowerUsageHistoryResponse.Builder response = Oslp.GetPowerUsageHistoryResponse.newBuilder()
+                    .setStatus(Oslp.Status.OK)
+                    .setPageInfo(Oslp.PageInfo.newBuilder().setCurrentPage(1).setPageSize(20).setTotalPages(5));
+            for (int i = 0; i < 20; i++) {
+                final Oslp.SsldData.Builder ssldData = Oslp.SsldData.newBuilder().setActualCurrent1(1200 + i)
+                        .setActualCurrent2(1300 + i).setActualCurrent3(1400 + i).setActualPower1(250 + i)
+                        .setActualPower2(260 + i).setActualPower3(270 + i).setAveragePowerFactor1(9)
+                        .setAveragePowerFactor2(9).setAveragePowerFactor3(10);
+                for (int relay = 1; relay <= 4; relay++) {
+                    ssldData.addRelayData(Oslp.RelayData.newBuilder()
+                            .setIndex(ByteString.copyFrom(new byte[] { (byte) relay }))
+                            .setTotalLightingMinutes(100000 + i * 60));
+                }
+                response.addPowerUsageData(Oslp.PowerUsageData.newBuilder()
+                        .setRecordTime(String.format("201701%02d000000", i + 1)).setMeterType(Oslp.MeterType.P1)
+                        .setTotalConsumedEnergy(123456789L + i * 1000L).setActualConsumedPower(800 + i)
+                        .setSsldData(ssldData));
+            }
+            return Message.newBuilder().setGetPowerUsageHistoryResponse(response).build();
+        }
+    };
+
+    abstract Message create();
+
+    private static Oslp.LightValue lightValue(final int index) {
+        return Oslp.LightValue.newBuilder().setIndex(ByteString.copyFrom(new byte[] { (byte) index }))
+                .setOn(index % 2 == 0).setDimValue(ByteString.copyFrom(new byte[] { (byte) (index * 10) })).build();
+    }
+}
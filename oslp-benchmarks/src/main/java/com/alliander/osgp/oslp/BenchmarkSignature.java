@@ -0,0 +1,82 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import com.alliander.osgp.shared.security.CertificateHelper;
+
+/**
+ * Signature algorithms used with OSLP devices, with the test keys of the oslp
+ * module.
+ */
+public enum BenchmarkSignature {
+    SHA256_WITH_ECDSA("SHA256withECDSA", "SunEC", "EC", Keys.EC_PRIVATE_KEY, Keys.EC_PUBLIC_KEY),
+    SHA512_WITH_RSA("SHA512withRSA", "SunRsaSign", "RSA", Keys.RSA_PRIVATE_KEY, Keys.RSA_PUBLIC_KEY),
+    SHA512_ENCRYPTED_WITH_RSA(OslpUtils.FALLBACK_SIGNATURE, "SunRsaSign", "RSA", Keys.RSA_PRIVATE_KEY,
+            Keys.RSA_PUBLIC_KEY);
+
+    private final String signature;
+    private final String provider;
+    private final String keyType;
+    private final String privateKey;
+    private final String publicKey;
+
+    private BenchmarkSignature(final String signature, final String provider, final String keyType,
+            final String privateKey, final String publicKey) {
+        this.signature = signature;
+        this.provider = provider;
+        this.keyType = keyType;
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+    }
+
+    public String getSignature() {
+        return this.signature;
+    }
+
+    public String getProvider() {
+        return this.provider;
+    }
+
+    public PrivateKey privateKey() throws IOException, GeneralSecurityException {
+        return CertificateHelper.createPrivateKeyFromBase64(this.privateKey, this.keyType, this.provider);
+    }
+
+    public PublicKey publicKey() throws IOException, GeneralSecurityException {
+        return CertificateHelper.createPublicKeyFromBase64(this.publicKey, this.keyType, this.provider);
+    }
+
+    private static class Keys {
+        private static final String EC_PRIVATE_KEY = "MIGHAgEAMBMGByqGSM49AgEGCCqGSM49AwEHBG0wawIBAQQg8ydsIOMoTlBPn6rJezELYFLUUuQe"
+                + "3GvrhI3TDJj1yNyhRANCAAQ0UmJgxWImQ5wgepQ65nlsK0lvYb/GW6nx4ngLgncDZmWH3Pck8eC1"
+                + "xsKg1goWpvl7P1um4cIjKyBwfqf8FxZa";
+
+        private static final String EC_PUBLIC_KEY = "MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAENFJiYMViJkOcIHqUOuZ5bCtJb2G/xlup8eJ4C4J3"
+                + "A2Zlh9z3JPHgtcbCoNYKFqb5ez9bpuHCIysgcH6n/BcWWg==";
+
+        private static final String RSA_PRIVATE_KEY = "MIICeAIBADANBgkqhkiG9w0BAQEFAASCAmIwggJeAgEAAoGBAMZLix1u8mSOk8LrMW7wZHgskw0J"
+                + "VY/EECl5BaxZKtJxIwB3W/9zaceYMgbBSE+7RcjAheRGncmF3DvuD0j40937PyV3OE48YsfPVecP"
+                + "Xa+NIfVpYWwGa2QEYYvjBZ5FjD6zeubCe80fKhB2bXLM1SDXiuvoemSt161rC4m8hUvXAgMBAAEC"
+                + "gYEAvOZ6QC/Q+bpZSPaEwQqAq3rLG0ApIivEub1wih7njFH65hbOrStlOZ7jCUxXdp0QfY3p/uzG"
+                + "o5PBmdXO+dUQ/lcpZSJzvmlf1gfEZAL7088pe9fyvwLRuiCOzw6b+j5AoQLfXrFv3fDZlWf1z82q"
+                + "Dc8cGNspYrvCSnjSRG4izQECQQD51biejn12Qan57c7nbF++xgaRmBQcURDFhFltb7vGajoYwSvp"
+                + "9w42pTNL29yAPlFqx9X+FsLCu58g4TJUlDRtAkEAyzA7ET8Az3PqXcL6VwykZQE37HVnLZwb7d4u"
+                + "y7+TIqXCuGDkHAjQ4bsHrGzheJI8fgqyOmvGxMY3P658aCyu0wJABJQPExDHadBgPg1GmmUZCBT2"
+                + "79oanD48EXKQdPn0NfmiYOvBU0NMxmGWpBA+ZTc/JLbOzB48qXbovqCB3JzurQJBAJ/iufgeLZMQ"
+                + "0ZEqRjeNeScJyGnHEIOxXcDVntkxTKRs70aK57Svsz6NH8KsgtePqw47eHfEK0rX9s2jjb2ju4UC"
+                + "QQDUw3UoM9nLSmPBqPhWpNiTThOISZNmTMXEmEvb0D3A0Tpmbu6ciTr1sJRUFQi4WRTaxaqM3sdj" + "cPjXvilnNkk6";
+
+        private static final String RSA_PUBLIC_KEY = "MIGfMA0GCSqGSIb3DQEBAQUAA4GNADCBiQKBgQDGS4sdbvJkjpPC6zFu8GR4LJMNCVWPxBApeQWs"
+                + "WSrScSMAd1v/c2nHmDIGwUhPu0XIwIXkRp3Jhdw77g9I+NPd+z8ldzhOPGLHz1XnD12vjSH1aWFs"
+                + "BmtkBGGL4wWeRYw+s3rmwnvNHyoQdm1yzNUg14rr6HpkrdetawuJvIVL1wIDAQAB";
+    }
+}
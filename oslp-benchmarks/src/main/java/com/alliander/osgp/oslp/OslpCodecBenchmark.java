@@ -0,0 +1,71 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of OSLP frames by {@link OslpEncoder} and
+ * {@link OslpDecoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OslpCodecBenchmark {
+
+    @Param({ "GET_STATUS", "SET_SCHEDULE", "POWER_USAGE_HISTORY" })
+    private BenchmarkPayload payload;
+
+    private OslpEnvelope envelope;
+    private OslpEncoder encoder;
+    private OslpDecoder decoder;
+    private ChannelBuffer frame;
+
+    @Setup
+    public void setup() throws IOException {
+        final BenchmarkSignature signature = BenchmarkSignature.SHA256_WITH_ECDSA;
+        this.envelope = BenchmarkEnvelopes.received(signature, this.payload.create());
+        this.encoder = new OslpEncoder();
+        this.decoder = new OslpDecoder(signature.getSignature(), signature.getProvider());
+        this.frame = (ChannelBuffer) new OslpEncoder().encode(null, null, this.envelope);
+    }
+
+    @Benchmark
+    public Object encode() throws IOException {
+        return this.encoder.encode(null, null, this.envelope);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        // A duplicate has its own reader index, so the frame can be decoded
+        // again in the next invocation.
+        return this.decoder.decode(null, null, this.frame.duplicate());
+    }
+
+    @Benchmark
+    public Object roundTrip() throws IOException {
+        return this.decoder.decode(null, null, (ChannelBuffer) this.encoder.encode(null, null, this.envelope));
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alliander.osgp.oslp.Oslp.Message;
+
+/**
+ * Building envelopes with {@link OslpEnvelope.Builder}, both signed with a
+ * private key (outgoing requests) and with a given security key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OslpEnvelopeBuilderBenchmark {
+
+    @Param({ "GET_STATUS", "SET_SCHEDULE", "POWER_USAGE_HISTORY" })
+    private BenchmarkPayload payload;
+
+    @Param({ "SHA256_WITH_ECDSA", "SHA512_WITH_RSA", "SHA512_ENCRYPTED_WITH_RSA" })
+    private BenchmarkSignature signature;
+
+    private PrivateKey privateKey;
+    private Message payloadMessage;
+    private byte[] securityKey;
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        this.privateKey = this.signature.privateKey();
+        this.payloadMessage = this.payload.create();
+        this.securityKey = BenchmarkEnvelopes.signed(this.signature, this.privateKey, this.payloadMessage)
+                .getSecurityKey();
+    }
+
+    @Benchmark
+    public OslpEnvelope buildSigned() {
+        return BenchmarkEnvelopes.signed(this.signature, this.privateKey, this.payloadMessage);
+    }
+
+    @Benchmark
+    public OslpEnvelope buildWithSecurityKey() {
+        return new OslpEnvelope.Builder().withSignature(this.signature.getSignature())
+                .withProvider(this.signature.getProvider()).withSecurityKey(this.securityKey)
+                .withDeviceId(BenchmarkEnvelopes.DEVICE_ID).withSequenceNumber(BenchmarkEnvelopes.SEQUENCE_NUMBER)
+                .withPayloadMessage(this.payloadMessage).build();
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Composing the bytes to sign by {@link OslpUtils#createSignBytes(OslpEnvelope)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OslpSignBytesBenchmark {
+
+    @Param({ "GET_STATUS", "SET_SCHEDULE", "POWER_USAGE_HISTORY" })
+    private BenchmarkPayload payload;
+
+    private OslpEnvelope envelope;
+
+    @Setup
+    public void setup() {
+        this.envelope = BenchmarkEnvelopes.received(BenchmarkSignature.SHA256_WITH_ECDSA, this.payload.create());
+    }
+
+    @Benchmark
+    public byte[] createSignBytes() {
+        return OslpUtils.createSignBytes(this.envelope);
+    }
+}
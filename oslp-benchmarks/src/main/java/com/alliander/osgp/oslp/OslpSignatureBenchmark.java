@@ -0,0 +1,74 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Signing and verifying envelopes with the signature algorithms used by OSLP
+ * devices, including the SHA512encryptedwithRSA fallback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OslpSignatureBenchmark {
+
+    @Param({ "GET_STATUS", "SET_SCHEDULE", "POWER_USAGE_HISTORY" })
+    private BenchmarkPayload payload;
+
+    @Param({ "SHA256_WITH_ECDSA", "SHA512_WITH_RSA", "SHA512_ENCRYPTED_WITH_RSA" })
+    private BenchmarkSignature signature;
+
+    private PrivateKey privateKey;
+    private PublicKey publicKey;
+    private OslpEnvelope envelope;
+    private byte[] securityKey;
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        this.privateKey = this.signature.privateKey();
+        this.publicKey = this.signature.publicKey();
+        this.envelope = BenchmarkEnvelopes.signed(this.signature, this.privateKey, this.payload.create());
+        this.securityKey = this.envelope.getSecurityKey();
+
+        if (!this.verify()) {
+            throw new IllegalStateException("Signature of " + this.signature + " does not verify");
+        }
+    }
+
+    @Benchmark
+    public byte[] sign() throws GeneralSecurityException {
+        return OslpUtils.createSignature(this.envelope, this.privateKey, this.signature.getSignature(),
+                this.signature.getProvider());
+    }
+
+    @Benchmark
+    public boolean verify() throws GeneralSecurityException {
+        return OslpUtils.validateSignature(this.envelope, this.securityKey, this.publicKey,
+                this.signature.getSignature(), this.signature.getProvider());
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+
+/**
+ * Per thread cache of resolved {@link Signature}, {@link Cipher} and
+ * {@link MessageDigest} instances, keyed by algorithm and provider. Looking up
+ * an engine through the JCA provider framework is relatively expensive, while
+ * an engine can be reused as long as it is used by one thread at a time and
+ * is initialized (or reset) before each use.
+ *
+ * The cache can be disabled using
+ * {@link OslpUtils#setCryptoEngineCacheEnabled(boolean)} or by setting the
+ * system property {@value #ENABLED_PROPERTY} to false, in which case a new
+ * engine is created for every call.
+ */
+final class CryptoEngineCache {
+
+    /**
+     * System property which determines whether the cache is enabled by
+     * default.
+     */
+    static final String ENABLED_PROPERTY = "oslp.security.engine.cache";
+
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    private static final ThreadLocal<Map<String, Signature>> SIGNATURES = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Cipher>> CIPHERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = ThreadLocal.withInitial(HashMap::new);
+
+    private CryptoEngineCache() {
+        // Empty constructor for static helper class.
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(final boolean newEnabled) {
+        enabled = newEnabled;
+    }
+
+    /**
+     * @return a {@link Signature} for the algorithm and provider, which has to
+     *         be initialized for signing or verification before use.
+     */
+    static Signature getSignature(final String algorithm, final String provider) throws GeneralSecurityException {
+        if (!enabled) {
+            return Signature.getInstance(algorithm, provider);
+        }
+
+        final Map<String, Signature> signatures = SIGNATURES.get();
+        final String key = key(algorithm, provider);
+        Signature signature = signatures.get(key);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm, provider);
+            signatures.put(key, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * @return a {@link Cipher} for the transformation using the default
+     *         provider, which has to be initialized before use.
+     */
+    static Cipher getCipher(final String transformation) throws GeneralSecurityException {
+        if (!enabled) {
+            return Cipher.getInstance(transformation);
+        }
+
+        final Map<String, Cipher> ciphers = CIPHERS.get();
+        Cipher cipher = ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * @return a reset {@link MessageDigest} for the algorithm using the
+     *         default provider.
+     */
+    static MessageDigest getMessageDigest(final String algorithm) throws GeneralSecurityException {
+        if (!enabled) {
+            return MessageDigest.getInstance(algorithm);
+        }
+
+        final Map<String, MessageDigest> digests = DIGESTS.get();
+        MessageDigest digest = digests.get(algorithm);
+        if (digest == null) {
+            digest = MessageDigest.getInstance(algorithm);
+            digests.put(algorithm, digest);
+        } else {
+            // A previous use may have failed halfway an update.
+            digest.reset();
+        }
+        return digest;
+    }
+
+    private static String key(final String algorithm, final String provider) {
+        return algorithm + "/" + provider;
+    }
+}
@@ -7,105 +7,90 @@
  */
 package com.alliander.osgp.oslp;
 
+import java.io.IOException;
+
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.handler.codec.replay.ReplayingDecoder;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
 
-public class OslpDecoder extends ReplayingDecoder<OslpDecoder.DecodingState> {
+/**
+ * Length field based decoder for OSLP frames. A frame consists of a fixed
+ * header (security key, sequence number, device id and length indicator)
+ * followed by the protobuf payload. The decoder waits until a complete frame
+ * has been received, and only then reads the header fields and parses the
+ * payload directly from the received bytes.
+ */
+public class OslpDecoder extends FrameDecoder {
     private static final Logger LOGGER = LoggerFactory.getLogger(OslpDecoder.class);
 
-    private final String signature;
-    private final String provider;
+    /**
+     * Offset of the length indicator within a frame.
+     */
+    private static final int LENGTH_INDICATOR_OFFSET = OslpEnvelope.SECURITY_KEY_LENGTH
+            + OslpEnvelope.SEQUENCE_NUMBER_LENGTH + OslpEnvelope.DEVICE_ID_LENGTH
+            + OslpEnvelope.MANUFACTURER_ID_LENGTH;
 
-    public static enum DecodingState {
-        SECURITY_KEY,
-        SEQUENCE_NUMBER,
-        DEVICE_ID,
-        LENGTH_INDICATOR,
-        PAYLOAD_MESSAGE;
-    }
+    /**
+     * Length of the header, including the length indicator.
+     */
+    public static final int HEADER_LENGTH = LENGTH_INDICATOR_OFFSET + OslpEnvelope.LENGTH_INDICATOR_LENGTH;
 
-    private OslpEnvelope.Builder builder;
-
-    private int length;
+    private final String signature;
+    private final String provider;
 
     public OslpDecoder(final String signature, final String provider) {
         LOGGER.debug("Created new decoder");
         this.signature = signature;
         this.provider = provider;
-
-        this.reset();
     }
 
     @Override
-    protected Object decode(final ChannelHandlerContext ctx, final org.jboss.netty.channel.Channel channel,
-            final ChannelBuffer buffer, final DecodingState state) throws UnknownOslpDecodingStateException,
-            InvalidProtocolBufferException {
-        LOGGER.debug("Decoding state: {}", state.toString());
-
-        if (state.compareTo(DecodingState.SECURITY_KEY) == 0) {
-            this.decodeSecurityKey(buffer);
-            this.checkpoint(DecodingState.SEQUENCE_NUMBER);
-        }
+    protected Object decode(final ChannelHandlerContext ctx, final Channel channel, final ChannelBuffer buffer)
+            throws IOException {
 
-        if (state.compareTo(DecodingState.SEQUENCE_NUMBER) <= 0) {
-            this.decodeSequenceNumber(buffer);
-            this.checkpoint(DecodingState.DEVICE_ID);
+        // Wait until the complete header has been received.
+        if (buffer.readableBytes() < HEADER_LENGTH) {
+            return null;
         }
 
-        if (state.compareTo(DecodingState.DEVICE_ID) <= 0) {
-            this.decodeDeviceId(buffer);
-            this.checkpoint(DecodingState.LENGTH_INDICATOR);
+        // Unlike the read* methods, the get* methods do not increase the
+        // reader index, so nothing is consumed until the whole frame is there.
+        final int readerIndex = buffer.readerIndex();
+        final int length = buffer.getUnsignedShort(readerIndex + LENGTH_INDICATOR_OFFSET);
+        if (buffer.readableBytes() < HEADER_LENGTH + length) {
+            return null;
         }
 
-        if (state.compareTo(DecodingState.LENGTH_INDICATOR) <= 0) {
-            this.decodeLengthIndicator(buffer);
-            this.checkpoint(DecodingState.PAYLOAD_MESSAGE);
-        }
-
-        if (state.compareTo(DecodingState.PAYLOAD_MESSAGE) <= 0) {
-            this.builder.withPayloadMessage(Oslp.Message.parseFrom(buffer.readBytes(this.length).array()));
-            this.checkpoint(DecodingState.SECURITY_KEY);
-            try {
-                return this.builder.withSignature(this.signature).withProvider(this.provider).build();
-            } finally {
-                this.reset();
-            }
-        } else {
-            // Should not get here
-            throw new UnknownOslpDecodingStateException(state.name());
-        }
-    }
-
-    private void decodeSecurityKey(final ChannelBuffer buffer) {
-        this.builder.withSecurityKey(buffer.readBytes(OslpEnvelope.SECURITY_KEY_LENGTH).toByteBuffer().array());
-    }
+        LOGGER.debug("Decoding frame with payload length: {}", length);
 
-    private void decodeSequenceNumber(final ChannelBuffer buffer) {
-        this.builder.withSequenceNumber(buffer.readBytes(OslpEnvelope.SEQUENCE_NUMBER_LENGTH).toByteBuffer().array());
+        final byte[] securityKey = new byte[OslpEnvelope.SECURITY_KEY_LENGTH];
+        final byte[] sequenceNumber = new byte[OslpEnvelope.SEQUENCE_NUMBER_LENGTH];
+        final byte[] deviceId = new byte[OslpEnvelope.DEVICE_ID_LENGTH + OslpEnvelope.MANUFACTURER_ID_LENGTH];
+        buffer.readBytes(securityKey);
+        buffer.readBytes(sequenceNumber);
+        buffer.readBytes(deviceId);
+        buffer.skipBytes(OslpEnvelope.LENGTH_INDICATOR_LENGTH);
 
-    }
+        final Oslp.Message payloadMessage = Oslp.Message.parseFrom(this.payloadInputStream(buffer, length));
+        buffer.skipBytes(length);
 
-    private void decodeDeviceId(final ChannelBuffer buffer) {
-        this.builder.withDeviceId(buffer.readBytes(OslpEnvelope.DEVICE_ID_LENGTH + OslpEnvelope.MANUFACTURER_ID_LENGTH)
-                .toByteBuffer().array());
+        return new OslpEnvelope(this.signature, this.provider, securityKey, sequenceNumber, deviceId, payloadMessage);
     }
 
-    private void decodeLengthIndicator(final ChannelBuffer buffer) {
-        this.length = buffer.getUnsignedShort(buffer.readerIndex());
-        // Unlike the read* methods, the get* methods do not increase the reader index. 
-        // If we wouldn't update the reader index the bytes read while trying to read the payload
-        // would also contain the length indicator (which would cause the payload parsing to fail).
-        buffer.readerIndex(buffer.readerIndex() + OslpEnvelope.LENGTH_INDICATOR_LENGTH);
-    }
-
-    private void reset() {
-        this.checkpoint(DecodingState.SECURITY_KEY);
-        this.builder = new OslpEnvelope.Builder();
-        this.length = 0;
+    /**
+     * Create a {@link CodedInputStream} over the payload bytes starting at the
+     * reader index of the buffer, without copying them.
+     */
+    private CodedInputStream payloadInputStream(final ChannelBuffer buffer, final int length) {
+        if (buffer.hasArray()) {
+            return CodedInputStream.newInstance(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
+        }
+        return CodedInputStream.newInstance(new ChannelBufferInputStream(buffer.slice(buffer.readerIndex(), length)));
     }
 }
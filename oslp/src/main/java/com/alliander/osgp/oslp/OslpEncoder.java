@@ -7,31 +7,71 @@
  */
 package com.alliander.osgp.oslp;
 
+import java.io.IOException;
+
 import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandler.Sharable;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Encodes an {@link OslpEnvelope} into a frame. Frames are allocated from the
+ * given buffer factory, which defaults to heap buffers. The factory has to
+ * create buffers with a backing array, as the protobuf version in use can only
+ * serialize straight into an array.
+ *
+ * A frame is encoded in a single pass: the buffer is allocated with the exact
+ * frame size, the header fields are written without copying them, and the
+ * payload is serialized straight into the backing array of the buffer.
+ */
+@Sharable
 public class OslpEncoder extends OneToOneEncoder {
-    private static ChannelBuffer encodeMessage(OslpEnvelope envelope) {
-        int size = envelope.getSize();
 
-        ChannelBuffer buffer = ChannelBuffers.buffer(size);
+    private final ChannelBufferFactory bufferFactory;
+
+    public OslpEncoder() {
+        this(HeapChannelBufferFactory.getInstance());
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             when the factory creates buffers without a backing array.
+     */
+    public OslpEncoder(final ChannelBufferFactory bufferFactory) {
+        if (!bufferFactory.getBuffer(1).hasArray()) {
+            throw new IllegalArgumentException("OslpEncoder needs buffers with a backing array");
+        }
+        this.bufferFactory = bufferFactory;
+    }
+
+    private ChannelBuffer encodeMessage(final OslpEnvelope envelope) throws IOException {
+        final Oslp.Message payloadMessage = envelope.getPayloadMessage();
+        final int payloadSize = payloadMessage.getSerializedSize();
+
+        final ChannelBuffer buffer = this.bufferFactory.getBuffer(envelope.getHeaderSize() + payloadSize);
+
+        envelope.writeHeader(new ChannelBufferOutputStream(buffer), payloadSize);
 
-        buffer.writeBytes(envelope.getSecurityKey());
-        buffer.writeBytes(envelope.getSequenceNumber());
-        buffer.writeBytes(envelope.getDeviceId());
-        buffer.writeBytes(envelope.getLengthIndicator());
-        buffer.writeBytes(envelope.getPayloadMessage().toByteArray());
+        final CodedOutputStream output = CodedOutputStream.newInstance(buffer.array(),
+                buffer.arrayOffset() + buffer.writerIndex(), payloadSize);
+        payloadMessage.writeTo(output);
+        output.checkNoSpaceLeft();
+        buffer.writerIndex(buffer.writerIndex() + payloadSize);
 
         return buffer;
     }
 
     @Override
-    protected Object encode(ChannelHandlerContext ctx, Channel channel, Object msg) {
+    protected Object encode(final ChannelHandlerContext ctx, final Channel channel, final Object msg)
+            throws IOException {
         if (msg instanceof OslpEnvelope) {
-            return encodeMessage((OslpEnvelope) msg);
+            return this.encodeMessage((OslpEnvelope) msg);
         } else {
             return msg;
         }
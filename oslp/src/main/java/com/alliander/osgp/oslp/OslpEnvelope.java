@@ -7,6 +7,8 @@
  */
 package com.alliander.osgp.oslp;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
@@ -144,6 +146,34 @@ public class OslpEnvelope implements Serializable {
         }
     }
 
+    /**
+     * Constructor used by {@link OslpDecoder} for received envelopes. The
+     * given arrays are freshly read from the channel and owned by the decoder,
+     * so they are used as is instead of being copied.
+     *
+     * @param signature
+     *            signature algorithm
+     * @param provider
+     *            algorithm provider
+     * @param securityKey
+     *            securitykey containing validation bytes
+     * @param sequenceNumber
+     *            sequencenumber
+     * @param deviceId
+     *            manufacturerid + deviceid of the device, 12 bytes
+     * @param payloadMessage
+     *            received payload
+     */
+    OslpEnvelope(final String signature, final String provider, final byte[] securityKey,
+            final byte[] sequenceNumber, final byte[] deviceId, final Message payloadMessage) {
+        this.signature = signature;
+        this.provider = provider;
+        this.securityKey = securityKey;
+        this.sequenceNumber = sequenceNumber;
+        this.deviceId = deviceId;
+        this.payloadMessage = payloadMessage;
+    }
+
     /**
      * @return security key bytes.
      */
@@ -264,8 +294,8 @@ public class OslpEnvelope implements Serializable {
      */
     public boolean validate(final PublicKey publicKey) {
         try {
-            this.valid = OslpUtils.validateSignature(OslpUtils.createSignBytes(this), this.getSecurityKey(), publicKey,
-                    this.signature, this.provider);
+            this.valid = OslpUtils.validateSignature(this, this.securityKey, publicKey, this.signature,
+                    this.provider);
         } catch (final GeneralSecurityException e) {
             throw new IllegalArgumentException(SECURITY_CONFIG_EXCEPTION, e);
         }
@@ -288,14 +318,65 @@ public class OslpEnvelope implements Serializable {
     private void setSecurityKey() {
         try {
             // Calculate and encrypt hash
-            final byte[] sig = OslpUtils.createSignature(OslpUtils.createSignBytes(this), this.privateKey,
-                    this.signature, this.provider);
+            final byte[] sig = OslpUtils.createSignature(this, this.privateKey, this.signature, this.provider);
             System.arraycopy(sig, 0, this.securityKey, 0, sig.length);
         } catch (final GeneralSecurityException e) {
             throw new IllegalArgumentException(SECURITY_CONFIG_EXCEPTION, e);
         }
     }
 
+    /**
+     * @return the size of the header fields as written by
+     *         {@link #writeHeader(OutputStream, int)}.
+     */
+    int getHeaderSize() {
+        return this.securityKey.length + this.sequenceNumber.length + this.deviceId.length + LENGTH_INDICATOR_LENGTH;
+    }
+
+    /**
+     * Write the header fields (security key, sequence number, device id and
+     * the length indicator of a payload of the given size) to the given
+     * stream, without copying the envelope fields.
+     *
+     * @param out
+     *            stream to write to
+     * @param payloadSize
+     *            serialized size of the payload
+     * @throws IOException
+     *             when writing to the stream fails
+     */
+    void writeHeader(final OutputStream out, final int payloadSize) throws IOException {
+        out.write(this.securityKey);
+        out.write(this.sequenceNumber);
+        out.write(this.deviceId);
+        out.write((payloadSize >>> 8) & 0xFF);
+        out.write(payloadSize & 0xFF);
+    }
+
+    /**
+     * Write the bytes which need to be signed (envelope + payload, excluding
+     * securityKey) to the given stream, in the same order as
+     * {@link OslpUtils#createSignBytes(OslpEnvelope)} combines them, without
+     * copying the envelope fields.
+     *
+     * @param out
+     *            stream to write to
+     * @throws IOException
+     *             when writing to the stream fails
+     */
+    void writeSignBytes(final OutputStream out) throws IOException {
+        out.write(this.sequenceNumber);
+        out.write(this.deviceId);
+
+        final int messageLength = this.payloadMessage == null ? 0 : this.payloadMessage.getSerializedSize();
+        out.write((messageLength >>> 8) & 0xFF);
+        out.write(messageLength & 0xFF);
+
+        if (this.payloadMessage != null) {
+            this.payloadMessage.writeTo(out);
+        }
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -7,12 +7,15 @@
  */
 package com.alliander.osgp.oslp;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Signature;
+import java.security.SignatureException;
 import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
@@ -56,6 +59,28 @@ public final class OslpUtils {
         // Empty constructor for static helper class.
     }
 
+    /**
+     * Enables or disables reuse of resolved Signature, Cipher and
+     * MessageDigest instances per thread. Enabled by default, unless the
+     * system property oslp.security.engine.cache is set to false.
+     *
+     * @param enabled
+     *            true to reuse instances, false to create new instances for
+     *            every signature or validation.
+     */
+    public static void setCryptoEngineCacheEnabled(final boolean enabled) {
+        LOGGER.info("Crypto engine cache enabled: {}", enabled);
+        CryptoEngineCache.setEnabled(enabled);
+    }
+
+    /**
+     * @return whether Signature, Cipher and MessageDigest instances are reused
+     *         per thread.
+     */
+    public static boolean isCryptoEngineCacheEnabled() {
+        return CryptoEngineCache.isEnabled();
+    }
+
     /**
      * Converts an {@link Integer} to a {@link ByteString}.
      *
@@ -130,7 +155,7 @@ public final class OslpUtils {
         }
 
         // Use real signature
-        final Signature signatureBuilder = Signature.getInstance(signature, provider);
+        final Signature signatureBuilder = CryptoEngineCache.getSignature(signature, provider);
         signatureBuilder.initSign(privateKey, new SecureRandom());
         signatureBuilder.update(message);
         return signatureBuilder.sign();
@@ -163,12 +188,89 @@ public final class OslpUtils {
         }
 
         // Using ECDSA as signature
-        final Signature signatureBuilder = Signature.getInstance(signature, provider);
+        final Signature signatureBuilder = CryptoEngineCache.getSignature(signature, provider);
         signatureBuilder.initVerify(publicKey);
         signatureBuilder.update(message);
-        
+
+        return verify(signatureBuilder, securityKey, signature);
+    }
+
+    /**
+     * Create a signature of the sign bytes of the envelope. Equivalent to
+     * {@link #createSignature(byte[], PrivateKey, String, String)} with the
+     * result of {@link #createSignBytes(OslpEnvelope)}, but streams the
+     * envelope fields and payload directly into the signature algorithm.
+     *
+     * @param envelope
+     *            envelope to sign
+     * @param privateKey
+     *            private key to use for signing
+     * @param signature
+     *            signature algorithm to use
+     * @param provider
+     *            provider which supplies the signature algorithm
+     * @return signature
+     * @throws GeneralSecurityException
+     *             when configuration is incorrect.
+     */
+    public static byte[] createSignature(final OslpEnvelope envelope, final PrivateKey privateKey,
+            final String signature, final String provider) throws GeneralSecurityException {
+        // Use fallback to plain SHA512 hash, which is encrypted with RSA
+        // instead of real RSA signature
+        if (signature.equalsIgnoreCase(FALLBACK_SIGNATURE)) {
+            return encryptHash(createHash(envelope), privateKey);
+        }
+
+        // Use real signature
+        final Signature signatureBuilder = CryptoEngineCache.getSignature(signature, provider);
+        signatureBuilder.initSign(privateKey, new SecureRandom());
+        writeSignBytes(envelope, new SignatureOutputStream(signatureBuilder));
+        return signatureBuilder.sign();
+    }
+
+    /**
+     * Validate the signature against the sign bytes of the envelope.
+     * Equivalent to
+     * {@link #validateSignature(byte[], byte[], PublicKey, String, String)}
+     * with the result of {@link #createSignBytes(OslpEnvelope)}, but streams
+     * the envelope fields and payload directly into the signature algorithm.
+     *
+     * @param envelope
+     *            envelope to validate
+     * @param securityKey
+     *            signature to validate
+     * @param publicKey
+     *            public key to use for decryption of signature
+     * @param signature
+     *            signature algorithm to use
+     * @param provider
+     *            provider which supplies algorithm
+     * @return true when signature is correct, false when it's not
+     * @throws GeneralSecurityException
+     *             when configuration is incorrect.
+     */
+    public static boolean validateSignature(final OslpEnvelope envelope, final byte[] securityKey,
+            final PublicKey publicKey, final String signature, final String provider)
+            throws GeneralSecurityException {
+
+        // Use fallback to plain SHA512 hash, which is encrypted with RSA
+        // instead of real RSA signature
+        if (signature.equalsIgnoreCase(FALLBACK_SIGNATURE)) {
+            return verifyEncryptedHash(createHash(envelope), securityKey, publicKey);
+        }
+
+        // Using ECDSA as signature
+        final Signature signatureBuilder = CryptoEngineCache.getSignature(signature, provider);
+        signatureBuilder.initVerify(publicKey);
+        writeSignBytes(envelope, new SignatureOutputStream(signatureBuilder));
+
+        return verify(signatureBuilder, securityKey, signature);
+    }
+
+    private static boolean verify(final Signature signatureBuilder, final byte[] securityKey, final String signature)
+            throws GeneralSecurityException {
         int signatureLength = securityKey.length;
-        
+
         if (ArrayUtils.contains(TRUNCATE_SIGNATURES, signature)) {
             // Fix for https://bugs.openjdk.java.net/browse/JDK-8161571
             // Read 2nd byte as length indicator for the actual signature bytes, include 2 bytes for 1st 2 bytes
@@ -178,37 +280,61 @@ public final class OslpUtils {
                 throw new GeneralSecurityException("Size indicator in ASN.1 DSA signature to large [" + signatureLength + "]");
             }
         }
-        // Truncate the string to actual ASN.1 DSA length, removing padding
-        byte[] truncated = Arrays.copyOf(securityKey, signatureLength);
-        return signatureBuilder.verify(truncated);
+        // Only verify the actual ASN.1 DSA length, ignoring padding
+        return signatureBuilder.verify(securityKey, 0, signatureLength);
     }
 
-    private static byte[] createEncryptedHash(final byte[] message, final PrivateKey privateKey)
+    private static void writeSignBytes(final OslpEnvelope envelope, final OutputStream out)
             throws GeneralSecurityException {
+        try {
+            envelope.writeSignBytes(out);
+        } catch (final IOException e) {
+            if (e.getCause() instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) e.getCause();
+            }
+            throw new GeneralSecurityException("Unable to process envelope bytes", e);
+        }
+    }
 
-        final byte[] hash = createHash(message);
+    private static byte[] createEncryptedHash(final byte[] message, final PrivateKey privateKey)
+            throws GeneralSecurityException {
+        return encryptHash(createHash(message), privateKey);
+    }
 
+    private static byte[] encryptHash(final byte[] hash, final PrivateKey privateKey)
+            throws GeneralSecurityException {
         // Encrypt the hash
-        final Cipher cipher = Cipher.getInstance(FALLBACK_CIPHER);
+        final Cipher cipher = CryptoEngineCache.getCipher(FALLBACK_CIPHER);
         cipher.init(Cipher.ENCRYPT_MODE, privateKey);
         return cipher.doFinal(hash);
     }
 
     private static byte[] createHash(final byte[] message) throws GeneralSecurityException {
         // Create digest Hash
-        final MessageDigest digest = MessageDigest.getInstance(FALLBACK_DIGEST);
+        final MessageDigest digest = CryptoEngineCache.getMessageDigest(FALLBACK_DIGEST);
         return digest.digest(message);
     }
 
+    private static byte[] createHash(final OslpEnvelope envelope) throws GeneralSecurityException {
+        // Create digest Hash
+        final MessageDigest digest = CryptoEngineCache.getMessageDigest(FALLBACK_DIGEST);
+        writeSignBytes(envelope, new MessageDigestOutputStream(digest));
+        return digest.digest();
+    }
+
     private static boolean validateEncryptedHash(final byte[] message, final byte[] securityKey,
             final PublicKey publicKey) throws GeneralSecurityException {
 
         // Calculate hash of message
-        final byte[] verifyHash = createHash(message);
+        return verifyEncryptedHash(createHash(message), securityKey, publicKey);
+    }
+
+    private static boolean verifyEncryptedHash(final byte[] verifyHash, final byte[] securityKey,
+            final PublicKey publicKey) throws GeneralSecurityException {
 
         try {
             // Decrypt security key hash
-            final Cipher cipher = Cipher.getInstance(FALLBACK_CIPHER);
+            final Cipher cipher = CryptoEngineCache.getCipher(FALLBACK_CIPHER);
             cipher.init(Cipher.DECRYPT_MODE, publicKey);
             final byte[] messageHash = cipher.doFinal(securityKey);
 
@@ -219,4 +345,54 @@ public final class OslpUtils {
             return false;
         }
     }
+
+    /**
+     * Output stream which feeds all written bytes into a {@link Signature}.
+     */
+    private static final class SignatureOutputStream extends OutputStream {
+        private final Signature signature;
+
+        SignatureOutputStream(final Signature signature) {
+            this.signature = signature;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            try {
+                this.signature.update((byte) b);
+            } catch (final SignatureException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            try {
+                this.signature.update(b, off, len);
+            } catch (final SignatureException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Output stream which feeds all written bytes into a {@link MessageDigest}.
+     */
+    private static final class MessageDigestOutputStream extends OutputStream {
+        private final MessageDigest digest;
+
+        MessageDigestOutputStream(final MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(final int b) {
+            this.digest.update((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            this.digest.update(b, off, len);
+        }
+    }
 }
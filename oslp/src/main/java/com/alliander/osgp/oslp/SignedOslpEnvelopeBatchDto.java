@@ -0,0 +1,51 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.alliander.osgp.shared.infra.jms.ResponseMessage;
+
+/**
+ * Batch of signing responses, which is sent by the signing server as one
+ * message in reply to an {@link UnsignedOslpEnvelopeBatchDto}. Each response
+ * message holds either a {@link SignedOslpEnvelopeDto} or, when signing
+ * failed, the original {@link UnsignedOslpEnvelopeDto}.
+ */
+public class SignedOslpEnvelopeBatchDto implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 7046118235613447265L;
+
+    /**
+     * Message type of a batch of signing responses.
+     */
+    public static final String SIGNING_BATCH_RESPONSE_MESSAGE_TYPE = "SIGNING_BATCH_RESPONSE";
+
+    /**
+     * The signing responses in this batch.
+     */
+    private final ArrayList<ResponseMessage> responseMessages;
+
+    public SignedOslpEnvelopeBatchDto(final List<ResponseMessage> responseMessages) {
+        this.responseMessages = new ArrayList<>(responseMessages);
+    }
+
+    public List<ResponseMessage> getResponseMessages() {
+        return Collections.unmodifiableList(this.responseMessages);
+    }
+
+    public int size() {
+        return this.responseMessages.size();
+    }
+}
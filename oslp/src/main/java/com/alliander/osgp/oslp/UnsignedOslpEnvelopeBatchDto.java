@@ -0,0 +1,49 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.alliander.osgp.shared.infra.jms.RequestMessage;
+
+/**
+ * Batch of signing requests, which is sent to the signing server as one
+ * message. Each request message holds an {@link UnsignedOslpEnvelopeDto}.
+ */
+public class UnsignedOslpEnvelopeBatchDto implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = -3370325446468236281L;
+
+    /**
+     * Message type of a batch of signing requests.
+     */
+    public static final String SIGNING_BATCH_REQUEST_MESSAGE_TYPE = "SIGNING_BATCH_REQUEST";
+
+    /**
+     * The signing requests in this batch.
+     */
+    private final ArrayList<RequestMessage> requestMessages;
+
+    public UnsignedOslpEnvelopeBatchDto(final List<RequestMessage> requestMessages) {
+        this.requestMessages = new ArrayList<>(requestMessages);
+    }
+
+    public List<RequestMessage> getRequestMessages() {
+        return Collections.unmodifiableList(this.requestMessages);
+    }
+
+    public int size() {
+        return this.requestMessages.size();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.PROVIDER;
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.SIGNATURE;
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.assertDecoded;
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.buildEnvelope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittests for the frame based {@link OslpDecoder}, feeding it frames which
+ * arrive in parts or together.
+ */
+public class OslpDecoderTest {
+
+    private DecoderEmbedder<OslpEnvelope> embedder;
+
+    @Before
+    public void setUp() {
+        this.embedder = new DecoderEmbedder<>(new OslpDecoder(SIGNATURE, PROVIDER));
+    }
+
+    @Test
+    public void decodesFrameWithHeaderSplitAcrossReads() throws IOException {
+        final OslpEnvelope envelope = buildEnvelope(1);
+        final ChannelBuffer frame = this.encode(envelope);
+
+        final int split = OslpDecoder.HEADER_LENGTH / 2;
+        assertFalse(this.embedder.offer(frame.slice(0, split)));
+        assertNull(this.embedder.poll());
+
+        assertTrue(this.embedder.offer(frame.slice(split, frame.readableBytes() - split)));
+        assertDecoded(envelope, this.embedder.poll());
+        assertNull(this.embedder.poll());
+    }
+
+    @Test
+    public void decodesFrameWithPayloadSplitAcrossReads() throws IOException {
+        final OslpEnvelope envelope = buildEnvelope(1);
+        final ChannelBuffer frame = this.encode(envelope);
+
+        // The complete header and part of the payload arrive first.
+        final int split = OslpDecoder.HEADER_LENGTH + envelope.getPayloadMessage().getSerializedSize() / 2;
+        assertFalse(this.embedder.offer(frame.slice(0, split)));
+        assertNull(this.embedder.poll());
+
+        assertTrue(this.embedder.offer(frame.slice(split, frame.readableBytes() - split)));
+        assertDecoded(envelope, this.embedder.poll());
+        assertNull(this.embedder.poll());
+    }
+
+    @Test
+    public void decodesTwoFramesInOneBuffer() throws IOException {
+        final OslpEnvelope first = buildEnvelope(1);
+        final OslpEnvelope second = buildEnvelope(2);
+
+        assertTrue(this.embedder.offer(ChannelBuffers.wrappedBuffer(this.encode(first), this.encode(second))));
+        assertDecoded(first, this.embedder.poll());
+        assertDecoded(second, this.embedder.poll());
+        assertNull(this.embedder.poll());
+    }
+
+    @Test
+    public void decodesFrameFromDirectBuffer() throws IOException {
+        final OslpEnvelope envelope = buildEnvelope(1);
+        final ChannelBuffer frame = this.encode(envelope);
+
+        final ChannelBuffer direct = DirectChannelBufferFactory.getInstance().getBuffer(frame.readableBytes());
+        direct.writeBytes(frame);
+        assertFalse(direct.hasArray());
+
+        final OslpEnvelope decoded = (OslpEnvelope) new OslpDecoder(SIGNATURE, PROVIDER).decode(null, null, direct);
+
+        assertDecoded(envelope, decoded);
+        assertEquals(0, direct.readableBytes());
+    }
+
+    private ChannelBuffer encode(final OslpEnvelope envelope) throws IOException {
+        return (ChannelBuffer) new OslpEncoder().encode(null, null, envelope);
+    }
+}
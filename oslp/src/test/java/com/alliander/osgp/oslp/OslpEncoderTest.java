@@ -0,0 +1,75 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.PROVIDER;
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.SIGNATURE;
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.assertDecoded;
+import static com.alliander.osgp.oslp.OslpTestEnvelopes.buildEnvelope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
+import org.junit.Test;
+
+/**
+ * Unittests for the single pass {@link OslpEncoder}.
+ */
+public class OslpEncoderTest {
+
+    @Test
+    public void encodesFrameWithHeapBuffers() throws IOException {
+        this.assertEncodesFrame(HeapChannelBufferFactory.getInstance(), buildEnvelope(1));
+    }
+
+    @Test
+    public void encodesLargeFrameWithHeapBuffers() throws IOException {
+        final OslpEnvelope envelope = buildEnvelope(1, 1000);
+        assertTrue(envelope.getPayloadMessage().getSerializedSize() > 4096);
+
+        this.assertEncodesFrame(HeapChannelBufferFactory.getInstance(), envelope);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBuffersWithoutBackingArray() {
+        new OslpEncoder(DirectChannelBufferFactory.getInstance());
+    }
+
+    @Test
+    public void decodesEncodedFrame() throws IOException {
+        final OslpEnvelope envelope = buildEnvelope(1);
+
+        final ChannelBuffer buffer = (ChannelBuffer) new OslpEncoder().encode(null, null, envelope);
+        final OslpEnvelope decoded = (OslpEnvelope) new OslpDecoder(SIGNATURE, PROVIDER).decode(null, null, buffer);
+
+        assertDecoded(envelope, decoded);
+    }
+
+    private void assertEncodesFrame(final ChannelBufferFactory bufferFactory, final OslpEnvelope envelope)
+            throws IOException {
+        final ChannelBuffer buffer = (ChannelBuffer) new OslpEncoder(bufferFactory).encode(null, null, envelope);
+        final byte[] frame = new byte[buffer.readableBytes()];
+        buffer.readBytes(frame);
+
+        // The frame as composed by the previous implementation of the encoder.
+        final byte[] expected = ArrayUtils.addAll(
+                ArrayUtils.addAll(ArrayUtils.addAll(envelope.getSecurityKey(), envelope.getSequenceNumber()),
+                        ArrayUtils.addAll(envelope.getDeviceId(), envelope.getLengthIndicator())),
+                envelope.getPayloadMessage().toByteArray());
+
+        assertEquals(envelope.getSize(), frame.length);
+        assertArrayEquals(expected, frame);
+    }
+}
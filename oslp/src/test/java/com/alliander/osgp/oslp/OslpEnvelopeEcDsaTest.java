@@ -80,6 +80,21 @@ public class OslpEnvelopeEcDsaTest {
                 this.provider())));
     }
 
+    /**
+     * Signature created from the streamed envelope must be valid for the sign
+     * bytes created by the reference implementation
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void streamedSignatureMatchesSignBytes() throws Exception {
+        final OslpEnvelope request = this.buildMessage();
+
+        assertTrue(OslpUtils.validateSignature(OslpUtils.createSignBytes(request), request.getSecurityKey(),
+                CertificateHelper.createPublicKeyFromBase64(PUBLIC_KEY_BASE_64, KEY_TYPE, this.provider()),
+                SIGNATURE, this.provider()));
+    }
+
     /**
      * Valid must fail when decryption fails using incorrect keys
      * 
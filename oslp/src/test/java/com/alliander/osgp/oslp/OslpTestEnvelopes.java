@@ -0,0 +1,66 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.oslp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.alliander.osgp.oslp.Oslp.Message;
+import com.google.protobuf.ByteString;
+
+/**
+ * Envelopes shared by the {@link OslpEncoder} and {@link OslpDecoder} tests.
+ */
+final class OslpTestEnvelopes {
+
+    static final String SIGNATURE = "SHA256withECDSA";
+    static final String PROVIDER = "SunEC";
+
+    private OslpTestEnvelopes() {
+        // Only static helpers.
+    }
+
+    /**
+     * @return an unsigned envelope with a set light request of six light
+     *         values.
+     */
+    static OslpEnvelope buildEnvelope(final int sequenceNumber) {
+        return buildEnvelope(sequenceNumber, 6);
+    }
+
+    /**
+     * @return an unsigned envelope with a set light request of the given
+     *         number of light values. The security key, sequence number and
+     *         payload differ per sequence number.
+     */
+    static OslpEnvelope buildEnvelope(final int sequenceNumber, final int lightValues) {
+        final byte[] securityKey = new byte[OslpEnvelope.SECURITY_KEY_LENGTH];
+        for (int i = 0; i < securityKey.length; i++) {
+            securityKey[i] = (byte) (i + sequenceNumber);
+        }
+        final byte[] deviceId = new byte[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A,
+                0x0B };
+
+        final Oslp.SetLightRequest.Builder setLightRequest = Oslp.SetLightRequest.newBuilder();
+        for (int i = 0; i < lightValues; i++) {
+            setLightRequest.addValues(Oslp.LightValue.newBuilder()
+                    .setIndex(ByteString.copyFrom(new byte[] { (byte) i })).setOn(i % 2 == sequenceNumber % 2));
+        }
+        final Message payloadMessage = Message.newBuilder().setSetLightRequest(setLightRequest).build();
+
+        return new OslpEnvelope(SIGNATURE, PROVIDER, securityKey, new byte[] { 0x00, (byte) sequenceNumber },
+                deviceId, payloadMessage);
+    }
+
+    static void assertDecoded(final OslpEnvelope expected, final OslpEnvelope decoded) {
+        assertArrayEquals(expected.getSecurityKey(), decoded.getSecurityKey());
+        assertArrayEquals(expected.getSequenceNumber(), decoded.getSequenceNumber());
+        assertArrayEquals(expected.getDeviceId(), decoded.getDeviceId());
+        assertEquals(expected.getPayloadMessage(), decoded.getPayloadMessage());
+    }
+}
@@ -18,10 +18,14 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.PropertySources;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.jmx.support.RegistrationPolicy;
 
 import com.alliander.osgp.shared.application.config.AbstractConfig;
 import com.alliander.osgp.shared.exceptionhandling.EncrypterException;
 import com.alliander.osgp.shared.security.CertificateHelper;
+import com.alliander.osgp.signing.server.application.services.SigningWorkerPool;
 import com.alliander.osgp.signing.server.domain.exceptions.SigningServerException;
 
 /**
@@ -40,6 +44,8 @@ public class ApplicationContext extends AbstractConfig {
     private static final String PROPERTY_NAME_SIGNING_SERVER_SECURITY_KEYTYPE = "signing.server.security.keytype";
     private static final String PROPERTY_NAME_SIGNING_SERVER_SECURITY_SIGNATURE = "signing.server.security.signature";
     private static final String PROPERTY_NAME_SIGNING_SERVER_SECURITY_PROVIDER = "signing.server.security.provider";
+    private static final String PROPERTY_NAME_SIGNING_SERVER_WORKERS_POOL_SIZE = "signing.server.workers.pool.size";
+    private static final String PROPERTY_NAME_SIGNING_SERVER_WORKERS_QUEUE_CAPACITY = "signing.server.workers.queue.capacity";
 
     @Bean
     @Qualifier("signingServerPrivateKey")
@@ -73,4 +79,33 @@ public class ApplicationContext extends AbstractConfig {
     public String signature() {
         return this.environment.getRequiredProperty(PROPERTY_NAME_SIGNING_SERVER_SECURITY_SIGNATURE);
     }
+
+    /**
+     * Pool of threads which sign the messages of batches. A pool size of 0
+     * uses one thread per available processor.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public SigningWorkerPool signingWorkerPool() {
+        int poolSize = Integer
+                .parseInt(this.environment.getProperty(PROPERTY_NAME_SIGNING_SERVER_WORKERS_POOL_SIZE, "0"));
+        if (poolSize <= 0) {
+            poolSize = Runtime.getRuntime().availableProcessors();
+        }
+        final int queueCapacity = Integer
+                .parseInt(this.environment.getProperty(PROPERTY_NAME_SIGNING_SERVER_WORKERS_QUEUE_CAPACITY, "1000"));
+
+        return new SigningWorkerPool(poolSize, queueCapacity);
+    }
+
+    /**
+     * Exports the statistics of the beans annotated with @ManagedResource over
+     * JMX. Other beans are not exported, even when they are MBeans.
+     */
+    @Bean
+    public AnnotationMBeanExporter signingServerMBeanExporter() {
+        final AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+        exporter.setAutodetectMode(MBeanExporter.AUTODETECT_ASSEMBLER);
+        exporter.setRegistrationPolicy(RegistrationPolicy.REPLACE_EXISTING);
+        return exporter;
+    }
 }
@@ -8,6 +8,11 @@
 package com.alliander.osgp.signing.server.application.services;
 
 import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.Resource;
 import javax.jms.Destination;
@@ -20,10 +25,13 @@ import org.springframework.stereotype.Service;
 
 import com.alliander.osgp.oslp.Oslp.Message;
 import com.alliander.osgp.oslp.OslpEnvelope;
+import com.alliander.osgp.oslp.SignedOslpEnvelopeBatchDto;
 import com.alliander.osgp.oslp.SignedOslpEnvelopeDto;
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeBatchDto;
 import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
 import com.alliander.osgp.shared.exceptionhandling.ComponentType;
 import com.alliander.osgp.shared.exceptionhandling.OsgpException;
+import com.alliander.osgp.shared.infra.jms.RequestMessage;
 import com.alliander.osgp.shared.infra.jms.ResponseMessage;
 import com.alliander.osgp.shared.infra.jms.ResponseMessageResultType;
 import com.alliander.osgp.signing.server.infra.messaging.SigningServerResponseMessageSender;
@@ -49,6 +57,9 @@ public class SigningService {
     @Autowired
     private SigningServerResponseMessageSender signingServerResponseMessageSender;
 
+    @Autowired
+    private SigningWorkerPool signingWorkerPool;
+
     public void sign(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto, final String correlationUid,
             final String deviceIdentification, final Destination replyToQueue) {
 
@@ -65,48 +76,162 @@ public class SigningService {
         LOGGER.info("Received message to sign for device: {} with correlationId: {}", deviceIdentification,
                 correlationUid);
 
-        // Sign the message.
-        this.doSignMessage(unsignedOslpEnvelopeDto, correlationUid, deviceIdentification, replyToQueue);
+        // Sign the message on the listener thread. The request is only
+        // acknowledged after the response has been sent, so handing it to a
+        // signing worker would only add a hand-off. The number of concurrent
+        // JMS consumers determines how many single messages are signed at the
+        // same time, the signing workers are used for batches.
+        final ResponseMessage responseMessage = this.executeSignMessage(unsignedOslpEnvelopeDto, correlationUid,
+                deviceIdentification);
+
+        this.signingServerResponseMessageSender.send(responseMessage, "SIGNING_RESPONSE", replyToQueue);
+        this.logStatistics();
     }
 
-    private void doSignMessage(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto, final String correlationUid,
-            final String deviceIdentification, final Destination replyToQueue) {
+    /**
+     * Sign all envelopes of a batch and send the results back in one batch
+     * response message.
+     */
+    public void signBatch(final UnsignedOslpEnvelopeBatchDto unsignedOslpEnvelopeBatchDto,
+            final String correlationUid, final String organisationIdentification, final String deviceIdentification,
+            final Destination replyToQueue) {
+
+        // Check the basics.
+        if (unsignedOslpEnvelopeBatchDto == null) {
+            LOGGER.error("UnsignedOslpEnvelopeBatchDto instance is null, unable to sign messages");
+            return;
+        }
+        if (replyToQueue == null) {
+            LOGGER.error("Destination replyToQueue is null, unable to send response to protocol-adapter");
+            return;
+        }
+
+        LOGGER.info("Received batch of {} messages to sign with correlationId: {}",
+                unsignedOslpEnvelopeBatchDto.size(), correlationUid);
+
+        // Sign the messages in parallel on the signing workers.
+        final List<RequestMessage> requestMessages = unsignedOslpEnvelopeBatchDto.getRequestMessages();
+        final List<Future<ResponseMessage>> futures = new ArrayList<>(requestMessages.size());
+        for (final RequestMessage requestMessage : requestMessages) {
+            futures.add(this.submitSignMessage((UnsignedOslpEnvelopeDto) requestMessage.getRequest(),
+                    requestMessage.getCorrelationUid(), requestMessage.getDeviceIdentification()));
+        }
+
+        final List<ResponseMessage> responseMessages = new ArrayList<>(requestMessages.size());
+        for (int i = 0; i < requestMessages.size(); i++) {
+            final RequestMessage requestMessage = requestMessages.get(i);
+            responseMessages.add(this.awaitSignedMessage(futures.get(i),
+                    (UnsignedOslpEnvelopeDto) requestMessage.getRequest(), requestMessage.getCorrelationUid(),
+                    requestMessage.getDeviceIdentification()));
+        }
+
+        final ResponseMessage responseMessage = ResponseMessage.newResponseMessageBuilder()
+                .withCorrelationUid(correlationUid).withOrganisationIdentification(organisationIdentification)
+                .withDeviceIdentification(deviceIdentification).withResult(ResponseMessageResultType.OK)
+                .withDataObject(new SignedOslpEnvelopeBatchDto(responseMessages)).build();
+
+        this.signingServerResponseMessageSender.send(responseMessage,
+                SignedOslpEnvelopeBatchDto.SIGNING_BATCH_RESPONSE_MESSAGE_TYPE, replyToQueue);
+        this.logStatistics();
+    }
+
+    private ResponseMessage executeSignMessage(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto,
+            final String correlationUid, final String deviceIdentification) {
+        try {
+            return this.signingWorkerPool
+                    .execute(this.signMessageTask(unsignedOslpEnvelopeDto, correlationUid, deviceIdentification));
+        } catch (final Exception e) {
+            LOGGER.error("Unexpected exception while signing message for device: {} with correlationId: {}",
+                    deviceIdentification, correlationUid, e);
+            return this.createNotSignedResponseMessage(unsignedOslpEnvelopeDto, correlationUid,
+                    deviceIdentification);
+        }
+    }
+
+    private Future<ResponseMessage> submitSignMessage(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto,
+            final String correlationUid, final String deviceIdentification) {
+        return this.signingWorkerPool
+                .submit(this.signMessageTask(unsignedOslpEnvelopeDto, correlationUid, deviceIdentification));
+    }
+
+    private Callable<ResponseMessage> signMessageTask(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto,
+            final String correlationUid, final String deviceIdentification) {
+        return new Callable<ResponseMessage>() {
+            @Override
+            public ResponseMessage call() {
+                return SigningService.this.doSignMessage(unsignedOslpEnvelopeDto, correlationUid,
+                        deviceIdentification);
+            }
+        };
+    }
+
+    private ResponseMessage awaitSignedMessage(final Future<ResponseMessage> future,
+            final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto, final String correlationUid,
+            final String deviceIdentification) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            LOGGER.error("Interrupted while signing message for device: {} with correlationId: {}",
+                    deviceIdentification, correlationUid, e);
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            LOGGER.error("Unexpected exception while signing message for device: {} with correlationId: {}",
+                    deviceIdentification, correlationUid, e);
+        }
+        return this.createNotSignedResponseMessage(unsignedOslpEnvelopeDto, correlationUid, deviceIdentification);
+    }
+
+    private void logStatistics() {
+        LOGGER.debug("Signing workers active: {}, queue depth: {}, signed: {}, average time: {} us, max time: {} us",
+                this.signingWorkerPool.getActiveCount(), this.signingWorkerPool.getQueueDepth(),
+                this.signingWorkerPool.getSignedCount(), this.signingWorkerPool.getAverageSigningTimeMicros(),
+                this.signingWorkerPool.getMaxSigningTimeMicros());
+    }
+
+    private ResponseMessage doSignMessage(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto,
+            final String correlationUid, final String deviceIdentification) {
 
         final byte[] deviceId = unsignedOslpEnvelopeDto.getDeviceId();
         final byte[] sequenceNumber = unsignedOslpEnvelopeDto.getSequenceNumber();
         final Message payloadMessage = unsignedOslpEnvelopeDto.getPayloadMessage();
         final String organisationIdentification = unsignedOslpEnvelopeDto.getOrganisationIdentification();
 
-        final OslpEnvelope oslpEnvelope = new OslpEnvelope.Builder().withDeviceId(deviceId)
-                .withSequenceNumber(sequenceNumber).withPrimaryKey(this.privateKey).withSignature(this.signature)
-                .withProvider(this.signatureProvider).withPayloadMessage(payloadMessage).build();
-
-        ResponseMessage responseMessage = null;
+        OslpEnvelope oslpEnvelope = null;
+        try {
+            oslpEnvelope = new OslpEnvelope.Builder().withDeviceId(deviceId).withSequenceNumber(sequenceNumber)
+                    .withPrimaryKey(this.privateKey).withSignature(this.signature).withProvider(this.signatureProvider)
+                    .withPayloadMessage(payloadMessage).build();
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error("Unable to sign message for device: {} with correlationId: {}", deviceIdentification,
+                    correlationUid, e);
+        }
 
         if (oslpEnvelope == null) {
-            LOGGER.error("Message for device: {} with correlationId: {} NOT SIGNED, sending error to protocol-adpater",
-                    deviceIdentification, correlationUid);
-
-            responseMessage = ResponseMessage.newResponseMessageBuilder().withCorrelationUid(correlationUid)
-                    .withOrganisationIdentification(organisationIdentification)
-                    .withDeviceIdentification(deviceIdentification).withResult(ResponseMessageResultType.NOT_OK)
-                    .withOsgpException(
-                            new OsgpException(ComponentType.UNKNOWN, "Failed to build signed OslpEnvelope", null))
-                    .withDataObject(unsignedOslpEnvelopeDto).build();
-
-        } else {
-            LOGGER.info("Message for device: {} with correlationId: {} signed, sending response to protocol-adapter",
-                    deviceIdentification, correlationUid);
-
-            final SignedOslpEnvelopeDto signedOslpEnvelopeDto = new SignedOslpEnvelopeDto(oslpEnvelope,
-                    unsignedOslpEnvelopeDto);
-
-            responseMessage = ResponseMessage.newResponseMessageBuilder().withCorrelationUid(correlationUid)
-                    .withOrganisationIdentification(organisationIdentification)
-                    .withDeviceIdentification(deviceIdentification).withResult(ResponseMessageResultType.OK)
-                    .withDataObject(signedOslpEnvelopeDto).build();
+            return this.createNotSignedResponseMessage(unsignedOslpEnvelopeDto, correlationUid, deviceIdentification);
         }
 
-        this.signingServerResponseMessageSender.send(responseMessage, "SIGNING_RESPONSE", replyToQueue);
+        LOGGER.info("Message for device: {} with correlationId: {} signed, sending response to protocol-adapter",
+                deviceIdentification, correlationUid);
+
+        final SignedOslpEnvelopeDto signedOslpEnvelopeDto = new SignedOslpEnvelopeDto(oslpEnvelope,
+                unsignedOslpEnvelopeDto);
+
+        return ResponseMessage.newResponseMessageBuilder().withCorrelationUid(correlationUid)
+                .withOrganisationIdentification(organisationIdentification)
+                .withDeviceIdentification(deviceIdentification).withResult(ResponseMessageResultType.OK)
+                .withDataObject(signedOslpEnvelopeDto).build();
+    }
+
+    private ResponseMessage createNotSignedResponseMessage(final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto,
+            final String correlationUid, final String deviceIdentification) {
+        LOGGER.error("Message for device: {} with correlationId: {} NOT SIGNED, sending error to protocol-adpater",
+                deviceIdentification, correlationUid);
+
+        return ResponseMessage.newResponseMessageBuilder().withCorrelationUid(correlationUid)
+                .withOrganisationIdentification(unsignedOslpEnvelopeDto.getOrganisationIdentification())
+                .withDeviceIdentification(deviceIdentification).withResult(ResponseMessageResultType.NOT_OK)
+                .withOsgpException(
+                        new OsgpException(ComponentType.UNKNOWN, "Failed to build signed OslpEnvelope", null))
+                .withDataObject(unsignedOslpEnvelopeDto).build();
     }
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.signing.server.application.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Fixed size pool of threads which sign the messages of a batch in parallel.
+ * The queue of the pool is bounded: when it is full, the submitting (JMS
+ * listener) thread signs the message itself, which slows down the consumption
+ * of new messages.
+ *
+ * Single messages are signed on the JMS listener thread using
+ * {@link #execute(Callable)}, which records the execution time the same way.
+ */
+@ManagedResource(objectName = "com.alliander.osgp.signing.server:type=SigningWorkerPool",
+        description = "Signing workers and signing times")
+public class SigningWorkerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SigningWorkerPool.class);
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong signedCount = new AtomicLong();
+    private final AtomicLong totalSigningTimeNanos = new AtomicLong();
+    private final AtomicLong maxSigningTimeNanos = new AtomicLong();
+
+    public SigningWorkerPool(final int poolSize, final int queueCapacity) {
+        LOGGER.info("Created signing worker pool with pool size: {} and queue capacity: {}", poolSize,
+                queueCapacity);
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new SigningWorkerThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Submit a signing task, of which the execution time is recorded.
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        return this.executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return SigningWorkerPool.this.execute(task);
+            }
+        });
+    }
+
+    /**
+     * Execute a signing task on the calling thread, recording its execution
+     * time.
+     */
+    public <T> T execute(final Callable<T> task) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            this.record(System.nanoTime() - start);
+        }
+    }
+
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * @return the number of signing tasks waiting for a worker.
+     */
+    @ManagedAttribute(description = "Number of signing tasks waiting for a worker")
+    public int getQueueDepth() {
+        return this.executor.getQueue().size();
+    }
+
+    @ManagedAttribute(description = "Number of workers signing a message")
+    public int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+
+    @ManagedAttribute(description = "Number of signing tasks executed")
+    public long getSignedCount() {
+        return this.signedCount.get();
+    }
+
+    /**
+     * @return the average execution time of a signing task in microseconds.
+     */
+    @ManagedAttribute(description = "Average execution time of a signing task in microseconds")
+    public long getAverageSigningTimeMicros() {
+        final long count = this.signedCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(this.totalSigningTimeNanos.get() / count);
+    }
+
+    /**
+     * @return the maximum execution time of a signing task in microseconds.
+     */
+    @ManagedAttribute(description = "Maximum execution time of a signing task in microseconds")
+    public long getMaxSigningTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(this.maxSigningTimeNanos.get());
+    }
+
+    private void record(final long signingTimeNanos) {
+        this.signedCount.incrementAndGet();
+        this.totalSigningTimeNanos.addAndGet(signingTimeNanos);
+
+        long max = this.maxSigningTimeNanos.get();
+        while (signingTimeNanos > max && !this.maxSigningTimeNanos.compareAndSet(max, signingTimeNanos)) {
+            max = this.maxSigningTimeNanos.get();
+        }
+    }
+
+    private static class SigningWorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "signing-worker-" + this.threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
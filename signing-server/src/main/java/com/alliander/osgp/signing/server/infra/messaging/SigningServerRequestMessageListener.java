@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import com.alliander.osgp.oslp.UnsignedOslpEnvelopeBatchDto;
 import com.alliander.osgp.oslp.UnsignedOslpEnvelopeDto;
 import com.alliander.osgp.shared.infra.jms.Constants;
 import com.alliander.osgp.shared.infra.jms.RequestMessage;
@@ -39,11 +40,22 @@ public class SigningServerRequestMessageListener implements MessageListener {
             final ObjectMessage objectMessage = (ObjectMessage) message;
             final Destination replyToQueue = objectMessage.getJMSReplyTo();
             final RequestMessage requestMessage = (RequestMessage) objectMessage.getObject();
-            final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto = (UnsignedOslpEnvelopeDto) requestMessage
-                    .getRequest();
             final String correlationUid = objectMessage.getJMSCorrelationID();
             final String deviceIdentification = objectMessage.getStringProperty(Constants.DEVICE_IDENTIFICATION);
 
+            if (UnsignedOslpEnvelopeBatchDto.SIGNING_BATCH_REQUEST_MESSAGE_TYPE.equals(objectMessage.getJMSType())) {
+                LOGGER.info("Received batch message with correlationId: {} and replyToQueue: {}", correlationUid,
+                        replyToQueue);
+
+                this.signingService.signBatch((UnsignedOslpEnvelopeBatchDto) requestMessage.getRequest(),
+                        correlationUid, objectMessage.getStringProperty(Constants.ORGANISATION_IDENTIFICATION),
+                        deviceIdentification, replyToQueue);
+                return;
+            }
+
+            final UnsignedOslpEnvelopeDto unsignedOslpEnvelopeDto = (UnsignedOslpEnvelopeDto) requestMessage
+                    .getRequest();
+
             LOGGER.info("Received message of type: {}, for device: {} with correlationId: {} and replyToQueue: {}",
                     objectMessage.getJMSType(), deviceIdentification, correlationUid, replyToQueue.toString());
 
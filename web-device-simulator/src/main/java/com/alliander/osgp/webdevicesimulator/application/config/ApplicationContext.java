@@ -13,6 +13,7 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.Properties;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
@@ -30,6 +31,7 @@ import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.SimpleChannelHandler;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
@@ -52,10 +54,14 @@ import org.springframework.web.servlet.view.JstlView;
 import com.alliander.osgp.oslp.OslpDecoder;
 import com.alliander.osgp.oslp.OslpEncoder;
 import com.alliander.osgp.shared.security.CertificateHelper;
+import com.alliander.osgp.webdevicesimulator.application.tasks.DeviceFanOut;
+import com.alliander.osgp.webdevicesimulator.service.DeviceEventScheduler;
 import com.alliander.osgp.webdevicesimulator.service.OslpChannelHandler;
+import com.alliander.osgp.webdevicesimulator.service.OslpLogItemWriter;
 import com.alliander.osgp.webdevicesimulator.service.OslpSecurityHandler;
 import com.alliander.osgp.webdevicesimulator.service.RegisterDevice;
 import com.alliander.osgp.webdevicesimulator.service.SwitchingServices;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
@@ -90,6 +96,7 @@ public class ApplicationContext {
     private static final String PROPERTY_NAME_HIBERNATE_FORMAT_SQL = "hibernate.format_sql";
     private static final String PROPERTY_NAME_HIBERNATE_NAMING_STRATEGY = "hibernate.ejb.naming_strategy";
     private static final String PROPERTY_NAME_HIBERNATE_SHOW_SQL = "hibernate.show_sql";
+    private static final String PROPERTY_NAME_HIBERNATE_JDBC_BATCH_SIZE = "hibernate.jdbc.batch_size";
 
     private static final String PROPERTY_NAME_FLYWAY_INITIAL_VERSION = "flyway.initial.version";
     private static final String PROPERTY_NAME_FLYWAY_INITIAL_DESCRIPTION = "flyway.initial.description";
@@ -119,6 +126,17 @@ public class ApplicationContext {
     private static final String PROPERTY_NAME_RESPONSE_DELAY_TIME = "response.delay.time";
     private static final String PROPERTY_NAME_RESPONSE_DELAY_RANDOM_RANGE = "response.delay.random.range";
 
+    private static final String PROPERTY_NAME_DEVICE_EVENT_SCHEDULER_POOL_SIZE = "device.event.scheduler.pool.size";
+
+    private static final String PROPERTY_NAME_AUTONOMOUS_TASKS_FANOUT_CONCURRENCY = "autonomous.tasks.fanout.concurrency";
+    private static final String PROPERTY_NAME_AUTONOMOUS_TASKS_FANOUT_RATE = "autonomous.tasks.fanout.rate";
+    private static final String PROPERTY_NAME_AUTONOMOUS_TASKS_FANOUT_JITTER = "autonomous.tasks.fanout.jitter";
+
+    private static final String PROPERTY_NAME_OSLP_LOG_ITEM_QUEUE_CAPACITY = "oslp.log.item.queue.capacity";
+    private static final String PROPERTY_NAME_OSLP_LOG_ITEM_BATCH_SIZE = "oslp.log.item.batch.size";
+    private static final String PROPERTY_NAME_OSLP_LOG_ITEM_FLUSH_INTERVAL = "oslp.log.item.flush.interval";
+    private static final String PROPERTY_NAME_OSLP_LOG_ITEM_SAMPLE_RATE = "oslp.log.item.sample.rate";
+
     private static final String PROPERTY_NAME_CHECKBOX_DEVICE_REGISTRATION_VALUE = "checkbox.device.registration.value";
     private static final String PROPERTY_NAME_CHECKBOX_DEVICE_REBOOT_VALUE = "checkbox.device.reboot.value";
     private static final String PROPERTY_NAME_CHECKBOX_LIGHT_SWITCHING_VALUE = "checkbox.light.switching.value";
@@ -221,6 +239,8 @@ public class ApplicationContext {
                 this.environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_NAMING_STRATEGY));
         jpaProperties.put(PROPERTY_NAME_HIBERNATE_SHOW_SQL,
                 this.environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_SHOW_SQL));
+        jpaProperties.put(PROPERTY_NAME_HIBERNATE_JDBC_BATCH_SIZE,
+                this.environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_JDBC_BATCH_SIZE));
 
         entityManagerFactoryBean.setJpaProperties(jpaProperties);
 
@@ -462,6 +482,46 @@ public class ApplicationContext {
         return value;
     }
 
+    /**
+     * Timer writing the delayed responses, so delaying a response does not
+     * occupy a thread.
+     */
+    @Bean(destroyMethod = "stop")
+    public HashedWheelTimer responseDelayTimer() {
+        return new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("response-delay-timer").build(), 10,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public DeviceEventScheduler deviceEventScheduler() {
+        return new DeviceEventScheduler(
+                Integer.parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_DEVICE_EVENT_SCHEDULER_POOL_SIZE)));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public DeviceFanOut deviceFanOut() {
+        final int concurrency = Integer
+                .parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_AUTONOMOUS_TASKS_FANOUT_CONCURRENCY));
+        final double rate = Double
+                .parseDouble(this.environment.getRequiredProperty(PROPERTY_NAME_AUTONOMOUS_TASKS_FANOUT_RATE));
+        final int jitter = Integer
+                .parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_AUTONOMOUS_TASKS_FANOUT_JITTER));
+        return new DeviceFanOut(concurrency, rate, jitter);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public OslpLogItemWriter oslpLogItemWriter() {
+        final int capacity = Integer
+                .parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_LOG_ITEM_QUEUE_CAPACITY));
+        final int batchSize = Integer
+                .parseInt(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_LOG_ITEM_BATCH_SIZE));
+        final long flushInterval = Long
+                .parseLong(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_LOG_ITEM_FLUSH_INTERVAL));
+        final double sampleRate = Double
+                .parseDouble(this.environment.getRequiredProperty(PROPERTY_NAME_OSLP_LOG_ITEM_SAMPLE_RATE));
+        return new OslpLogItemWriter(capacity, batchSize, flushInterval, sampleRate);
+    }
+
     @Bean
     public Boolean checkboxDeviceRegistrationValue() {
         return Boolean
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.application.config;
+
+import javax.annotation.Resource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.PropertySources;
+import org.springframework.core.env.Environment;
+
+import com.alliander.osgp.webdevicesimulator.domain.valueobjects.ProtocolType;
+import com.alliander.osgp.webdevicesimulator.service.LoadGenerator;
+
+@Configuration
+@PropertySources({ @PropertySource("classpath:web-device-simulator.properties"),
+        @PropertySource(value = "file:${osgp/WebDeviceSimulator/config}", ignoreResourceNotFound = true), })
+public class LoadGeneratorConfig {
+
+    private static final String PROPERTY_NAME_LOAD_ENABLED = "load.enabled";
+    private static final String PROPERTY_NAME_LOAD_DEVICE_COUNT = "load.device.count";
+    private static final String PROPERTY_NAME_LOAD_DEVICE_IDENTIFICATION_PREFIX = "load.device.identification.prefix";
+    private static final String PROPERTY_NAME_LOAD_PROTOCOL = "load.protocol";
+    private static final String PROPERTY_NAME_LOAD_REGISTRATION_RATE = "load.registration.rate";
+    private static final String PROPERTY_NAME_LOAD_REGISTRATION_REPEAT = "load.registration.repeat";
+    private static final String PROPERTY_NAME_LOAD_EVENT_NOTIFICATION_RATE = "load.event.notification.rate";
+    private static final String PROPERTY_NAME_LOAD_MAX_IN_FLIGHT = "load.max.in.flight";
+    private static final String PROPERTY_NAME_LOAD_TIMEOUT_RESPONSE = "load.timeout.response";
+    private static final String PROPERTY_NAME_LOAD_DURATION = "load.duration";
+    private static final String PROPERTY_NAME_LOAD_REPORT_INTERVAL = "load.report.interval";
+    private static final String PROPERTY_NAME_LOAD_IO_THREAD_COUNT = "load.io.thread.count";
+
+    @Resource
+    private Environment environment;
+
+    @Bean(destroyMethod = "stop")
+    public LoadGenerator loadGenerator() {
+        final LoadGenerator loadGenerator = new LoadGenerator();
+        loadGenerator.setEnabled(Boolean.parseBoolean(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_ENABLED)));
+        loadGenerator.setDeviceCount(Integer.parseInt(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_DEVICE_COUNT)));
+        loadGenerator.setDeviceIdentificationPrefix(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_DEVICE_IDENTIFICATION_PREFIX));
+        loadGenerator.setProtocol(ProtocolType.valueOf(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_PROTOCOL)));
+        loadGenerator.setRegistrationRate(Double.parseDouble(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_REGISTRATION_RATE)));
+        loadGenerator.setRepeatRegistrations(Boolean.parseBoolean(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_REGISTRATION_REPEAT)));
+        loadGenerator.setEventNotificationRate(Double.parseDouble(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_EVENT_NOTIFICATION_RATE)));
+        loadGenerator.setMaxInFlight(Integer.parseInt(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_MAX_IN_FLIGHT)));
+        loadGenerator.setResponseTimeout(Long.parseLong(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_TIMEOUT_RESPONSE)));
+        loadGenerator.setDuration(Long.parseLong(this.environment.getRequiredProperty(PROPERTY_NAME_LOAD_DURATION)));
+        loadGenerator.setReportInterval(Long.parseLong(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_REPORT_INTERVAL)));
+        loadGenerator.setIoThreadCount(Integer.parseInt(this.environment
+                .getRequiredProperty(PROPERTY_NAME_LOAD_IO_THREAD_COUNT)));
+        return loadGenerator;
+    }
+}
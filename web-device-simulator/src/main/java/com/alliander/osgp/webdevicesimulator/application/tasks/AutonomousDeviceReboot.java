@@ -17,6 +17,7 @@ import org.springframework.stereotype.Component;
 import com.alliander.osgp.oslp.Oslp;
 import com.alliander.osgp.webdevicesimulator.application.services.DeviceManagementService;
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
+import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
 import com.alliander.osgp.webdevicesimulator.domain.repositories.DeviceRepository;
 import com.alliander.osgp.webdevicesimulator.service.RegisterDevice;
 
@@ -34,6 +35,9 @@ public class AutonomousDeviceReboot implements Runnable {
     @Autowired
     private DeviceManagementService deviceManagementService;
 
+    @Autowired
+    private DeviceFanOut deviceFanOut;
+
     @Override
     public void run() {
         if (this.deviceManagementService.getDevReboot()) {
@@ -41,37 +45,41 @@ public class AutonomousDeviceReboot implements Runnable {
 
             final List<Device> devices = this.deviceRepository.findAll();
 
-            for (final Device device : devices) {
-                LOGGER.info("Autonomous device reboot for : {}: {} ", device.getId(), device.getDeviceIdentification());
-
-                // registering device with hasSchedule as false
-                LOGGER.info("device registration for : {}: {} ", device.getId(), device.getDeviceIdentification());
-                this.registerDevice.sendRegisterDeviceCommand(device.getId(), false);
-
-                // Confirm device registration
-                LOGGER.info("device register confirmation for : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendConfirmDeviceRegistrationCommand(device.getId());
-
-                // Sending events on device reboot
-                LOGGER.info("Sending TARIFF_EVENTS_TARIFF_OFF event for device : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendEventNotificationCommand(device.getId(),
-                        Oslp.Event.TARIFF_EVENTS_TARIFF_OFF_VALUE,
-                        "TARIFF_EVENTS_TARIFF_OFF_VALUE event occurred on Device reboot ", null);
-
-                LOGGER.info("Sending LIGHT_EVENTS_LIGHT_OFF event for device : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendEventNotificationCommand(device.getId(),
-                        Oslp.Event.LIGHT_EVENTS_LIGHT_OFF_VALUE,
-                        "LIGHT_EVENTS_LIGHT_OFF event occurred on Device reboot ", null);
-
-                LOGGER.info("Sending DIAG_EVENTS_GENERAL event for device : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendEventNotificationCommand(device.getId(), Oslp.Event.DIAG_EVENTS_GENERAL_VALUE,
-                        "DIAG_EVENTS_GENERAL event occurred on Device reboot ", null);
-            }
+            this.deviceFanOut.run("Autonomous device reboot", devices, this::reboot);
         }
     }
 
-}
\ No newline at end of file
+    private boolean reboot(final Device device) {
+        LOGGER.info("Autonomous device reboot for : {}: {} ", device.getId(), device.getDeviceIdentification());
+
+        // registering device with hasSchedule as false
+        LOGGER.info("device registration for : {}: {} ", device.getId(), device.getDeviceIdentification());
+        boolean succeeded = DeviceMessageStatus.OK == this.registerDevice.sendRegisterDeviceCommand(device.getId(),
+                false);
+
+        // Confirm device registration
+        LOGGER.info("device register confirmation for : {}: {} ", device.getId(), device.getDeviceIdentification());
+        succeeded &= DeviceMessageStatus.OK == this.registerDevice
+                .sendConfirmDeviceRegistrationCommand(device.getId());
+
+        // Sending events on device reboot
+        LOGGER.info("Sending TARIFF_EVENTS_TARIFF_OFF event for device : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
+        succeeded &= DeviceMessageStatus.OK == this.registerDevice.sendEventNotificationCommand(device.getId(),
+                Oslp.Event.TARIFF_EVENTS_TARIFF_OFF_VALUE,
+                "TARIFF_EVENTS_TARIFF_OFF_VALUE event occurred on Device reboot ", null);
+
+        LOGGER.info("Sending LIGHT_EVENTS_LIGHT_OFF event for device : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
+        succeeded &= DeviceMessageStatus.OK == this.registerDevice.sendEventNotificationCommand(device.getId(),
+                Oslp.Event.LIGHT_EVENTS_LIGHT_OFF_VALUE,
+                "LIGHT_EVENTS_LIGHT_OFF event occurred on Device reboot ", null);
+
+        LOGGER.info("Sending DIAG_EVENTS_GENERAL event for device : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
+        succeeded &= DeviceMessageStatus.OK == this.registerDevice.sendEventNotificationCommand(device.getId(),
+                Oslp.Event.DIAG_EVENTS_GENERAL_VALUE, "DIAG_EVENTS_GENERAL event occurred on Device reboot ", null);
+
+        return succeeded;
+    }
+}
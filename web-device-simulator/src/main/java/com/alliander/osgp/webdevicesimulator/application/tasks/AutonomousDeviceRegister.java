@@ -16,6 +16,7 @@ import org.springframework.stereotype.Component;
 
 import com.alliander.osgp.webdevicesimulator.application.services.DeviceManagementService;
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
+import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
 import com.alliander.osgp.webdevicesimulator.domain.repositories.DeviceRepository;
 import com.alliander.osgp.webdevicesimulator.service.RegisterDevice;
 
@@ -33,6 +34,9 @@ public class AutonomousDeviceRegister implements Runnable {
     @Autowired
     private RegisterDevice registerDevice;
 
+    @Autowired
+    private DeviceFanOut deviceFanOut;
+
     @Override
     public void run() {
 
@@ -42,14 +46,18 @@ public class AutonomousDeviceRegister implements Runnable {
 
             final List<Device> devices = this.deviceRepository.findAll();
 
-            for (final Device device : devices) {
-                LOGGER.info("Autonomous device register for : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendRegisterDeviceCommand(device.getId(), false);
-                LOGGER.info("Autonomous device register confirmation for : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendConfirmDeviceRegistrationCommand(device.getId());
-            }
+            this.deviceFanOut.run("Autonomous device registration", devices, this::register);
         }
     }
+
+    private boolean register(final Device device) {
+        LOGGER.info("Autonomous device register for : {}: {} ", device.getId(), device.getDeviceIdentification());
+        final DeviceMessageStatus registerStatus = this.registerDevice.sendRegisterDeviceCommand(device.getId(),
+                false);
+        LOGGER.info("Autonomous device register confirmation for : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
+        final DeviceMessageStatus confirmStatus = this.registerDevice
+                .sendConfirmDeviceRegistrationCommand(device.getId());
+        return DeviceMessageStatus.OK == registerStatus && DeviceMessageStatus.OK == confirmStatus;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.application.tasks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alliander.osgp.webdevicesimulator.service.LatencyHistogram;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the action of an autonomous task for many devices in parallel, shared
+ * by all autonomous tasks.
+ *
+ * At most concurrency actions run at the same time, and with a rate larger
+ * than zero at most rate actions are started per second. Each action starts
+ * after a random delay of up to jitter milliseconds, so the devices do not
+ * all send at the same moment. An action only occupies one of the
+ * concurrency threads once its delay has passed. A run returns when all
+ * actions have finished, and its report is logged.
+ */
+public class DeviceFanOut {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceFanOut.class);
+
+    /**
+     * Interval in milliseconds of checking whether the fan-out has been shut
+     * down while waiting for the actions of a run.
+     */
+    private static final long AWAIT_INTERVAL = 1000;
+
+    /**
+     * Action for one item, usually a device.
+     */
+    public interface Action<T> {
+        /**
+         * @return true if the action succeeded.
+         */
+        boolean execute(T item);
+    }
+
+    private final double rate;
+    private final int jitter;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final Random random = new Random();
+
+    /**
+     * @param concurrency
+     *            maximum number of actions running at the same time.
+     * @param rate
+     *            maximum number of actions started per second, 0 does not
+     *            limit the rate.
+     * @param jitter
+     *            maximum random delay in milliseconds before an action starts.
+     */
+    public DeviceFanOut(final int concurrency, final double rate, final int jitter) {
+        LOGGER.info("Created device fan-out with concurrency: {}, rate: {}/s and jitter: {} ms", concurrency, rate,
+                jitter);
+        this.rate = rate;
+        this.jitter = jitter;
+        this.executor = new ScheduledThreadPoolExecutor(concurrency, new ThreadFactoryBuilder().setNameFormat(
+                "autonomous-task-%d").build());
+    }
+
+    /**
+     * Executes the action for all items and waits until all actions have
+     * finished. If the calling thread is interrupted, the remaining items are
+     * skipped.
+     */
+    public <T> Report run(final String name, final List<T> items, final Action<T> action) {
+        final long startTime = System.nanoTime();
+        final Report report = new Report(name, items.size());
+        final Semaphore finished = new Semaphore(0);
+
+        final long interval = this.rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / this.rate) : 0;
+        long nextStartTime = startTime;
+        int dispatched = 0;
+        try {
+            for (final T item : items) {
+                if (interval > 0) {
+                    TimeUnit.NANOSECONDS.sleep(nextStartTime - System.nanoTime());
+                    nextStartTime += interval;
+                }
+                this.dispatch(item, action, finished, report);
+                dispatched++;
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.warn("{} interrupted, skipping {} of {} devices", name, items.size() - dispatched, items.size());
+            Thread.currentThread().interrupt();
+        }
+        report.skippedCount = items.size() - dispatched;
+
+        this.awaitFinished(finished, dispatched, report);
+        report.duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        LOGGER.info("{}", report);
+        return report;
+    }
+
+    /**
+     * Waits until all dispatched actions have finished, each releasing one
+     * permit. Actions which were still waiting for their delay when the
+     * fan-out was shut down never run, those are counted as failed.
+     */
+    private void awaitFinished(final Semaphore finished, final int dispatched, final Report report) {
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                if (finished.tryAcquire(dispatched, AWAIT_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+            if (this.executor.isTerminated()) {
+                final int notRun = dispatched - finished.drainPermits();
+                LOGGER.warn("{} stopped by shutdown, {} devices have not been handled", report.name, notRun);
+                report.failureCount.addAndGet(notRun);
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> void dispatch(final T item, final Action<T> action, final Semaphore finished, final Report report) {
+        final long delay = this.jitter > 0 ? this.random.nextInt(this.jitter + 1) : 0;
+        try {
+            this.executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    final long startTime = System.nanoTime();
+                    boolean succeeded = false;
+                    try {
+                        succeeded = action.execute(item);
+                    } catch (final RuntimeException e) {
+                        LOGGER.error("Unexpected exception during {} for {}", report.name, item, e);
+                    } finally {
+                        report.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                        if (succeeded) {
+                            report.successCount.incrementAndGet();
+                        } else {
+                            report.failureCount.incrementAndGet();
+                        }
+                        finished.release();
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            LOGGER.warn("Unable to run {} for {}, the fan-out has been shut down", report.name, item);
+            report.failureCount.incrementAndGet();
+            finished.release();
+        }
+    }
+
+    /**
+     * Stops the running actions and discards the actions waiting for their
+     * delay. Called by Spring when the application context is closed.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Outcome of one run.
+     */
+    public static class Report {
+        private final String name;
+        private final int itemCount;
+        private final AtomicInteger successCount = new AtomicInteger();
+        private final AtomicInteger failureCount = new AtomicInteger();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private int skippedCount;
+        private long duration;
+
+        Report(final String name, final int itemCount) {
+            this.name = name;
+            this.itemCount = itemCount;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int getItemCount() {
+            return this.itemCount;
+        }
+
+        public int getSuccessCount() {
+            return this.successCount.get();
+        }
+
+        public int getFailureCount() {
+            return this.failureCount.get();
+        }
+
+        public int getSkippedCount() {
+            return this.skippedCount;
+        }
+
+        /**
+         * @return the duration of the run in milliseconds.
+         */
+        public long getDuration() {
+            return this.duration;
+        }
+
+        public LatencyHistogram getLatencies() {
+            return this.latencies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d devices in %d ms, %d succeeded, %d failed, %d skipped, latency: %s, "
+                    + "histogram: %s", this.name, this.itemCount, this.duration, this.getSuccessCount(),
+                    this.getFailureCount(), this.skippedCount, this.latencies, this.latencies.formatBuckets());
+        }
+    }
+}
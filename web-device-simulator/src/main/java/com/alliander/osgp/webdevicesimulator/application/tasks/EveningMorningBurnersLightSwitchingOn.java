@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import com.alliander.osgp.oslp.Oslp;
 import com.alliander.osgp.webdevicesimulator.application.services.DeviceManagementService;
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
+import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
 import com.alliander.osgp.webdevicesimulator.domain.repositories.DeviceRepository;
 import com.alliander.osgp.webdevicesimulator.service.RegisterDevice;
 import com.alliander.osgp.webdevicesimulator.service.SwitchingServices;
@@ -31,6 +32,9 @@ public class EveningMorningBurnersLightSwitchingOn implements Runnable {
     @Autowired
     private DeviceManagementService deviceManagementService;
 
+    @Autowired
+    private DeviceFanOut deviceFanOut;
+
     @Override
     public void run() {
 
@@ -40,21 +44,23 @@ public class EveningMorningBurnersLightSwitchingOn implements Runnable {
 
             final List<Device> devices = this.deviceRepository.findByHasEveningMorningBurner(true);
 
-            for (final Device device : devices) {
-                LOGGER.info("Light switching for : {}: {} ", device.getId(), device.getDeviceIdentification());
+            this.deviceFanOut.run("Evening/morning burners light switching on", devices, this::switchLightOn);
+        }
+    }
+
+    private boolean switchLightOn(final Device device) {
+        LOGGER.info("Light switching for : {}: {} ", device.getId(), device.getDeviceIdentification());
 
-                // Switching on Light
-                this.switchingServices.lightSwitchOn(device.getId());
+        // Switching on Light
+        this.switchingServices.lightSwitchOn(device.getId());
 
-                // Send EventNotifications for LightSwitching On
-                LOGGER.info("Sending LIGHT_EVENTS_LIGHT_ON event for device : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
+        // Send EventNotifications for LightSwitching On
+        LOGGER.info("Sending LIGHT_EVENTS_LIGHT_ON event for device : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
 
-                // The event index for Evening/Morning Burners is 3.
-                this.registerDevice.sendEventNotificationCommand(device.getId(),
-                        Oslp.Event.LIGHT_EVENTS_LIGHT_ON_VALUE,
-                        "LIGHT_EVENTS_LIGHT_ON event occurred on Light Switching on ", 3);
-            }
-        }
+        // The event index for Evening/Morning Burners is 3.
+        return DeviceMessageStatus.OK == this.registerDevice.sendEventNotificationCommand(device.getId(),
+                Oslp.Event.LIGHT_EVENTS_LIGHT_ON_VALUE,
+                "LIGHT_EVENTS_LIGHT_ON event occurred on Light Switching on ", 3);
     }
-}
\ No newline at end of file
+}
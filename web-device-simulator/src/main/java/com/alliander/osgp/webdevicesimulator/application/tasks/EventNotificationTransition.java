@@ -1,7 +1,11 @@
 package com.alliander.osgp.webdevicesimulator.application.tasks;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +29,9 @@ public class EventNotificationTransition implements Runnable {
     @Autowired
     private RegisterDevice registerDevice;
 
+    @Autowired
+    private DeviceFanOut deviceFanOut;
+
     @Override
     public void run() {
 
@@ -33,43 +40,51 @@ public class EventNotificationTransition implements Runnable {
             final List<EventNotificationToBeSent> listeventNotificationToBeSent = this.deviceManagementService
                     .getEventNotificationToBeSent();
 
-            // The local list of events
-            final List<EventNotificationToBeSent> listOfEvents = new ArrayList<>();
-
-            // add content of the original list into the local list of events
-            listOfEvents.addAll(listeventNotificationToBeSent);
-
-            // run through the list of events and send each
-            for (final EventNotificationToBeSent event : listOfEvents) {
-
-                DeviceMessageStatus status;
+            // Group the events per device, the events of one device are sent
+            // one after the other to keep its sequence numbers in order.
+            final Map<Long, List<EventNotificationToBeSent>> eventsPerDevice = new LinkedHashMap<>();
+            for (final EventNotificationToBeSent event : listeventNotificationToBeSent) {
+                eventsPerDevice.computeIfAbsent(event.getdeviceId(), deviceId -> new ArrayList<>()).add(event);
+            }
 
-                if (event.getLightOn()) {
-                    // Send EventNotifications for Light Transition ON
-                    LOGGER.info("Sending LIGHT_EVENTS_LIGHT_ON_VALUE event for device : {}: {} ", event.getdeviceId());
-                    status = this.registerDevice.sendEventNotificationCommand(event.getdeviceId(),
-                            Oslp.Event.LIGHT_EVENTS_LIGHT_ON_VALUE,
-                            "LIGHT_EVENTS_LIGHT_ON_VALUE event occurred on Light Switching on ", null);
+            final Queue<EventNotificationToBeSent> sentEvents = new ConcurrentLinkedQueue<>();
+            this.deviceFanOut.run("Event notification transition", new ArrayList<>(eventsPerDevice.values()),
+                    events -> this.sendEvents(events, sentEvents));
 
-                } else {
-                    // Send EventNotifications for Light Transition OFF
-                    LOGGER.info("Sending LIGHT_EVENTS_LIGHT_OFF_VALUE event for device : {}: {} ", event.getdeviceId());
-                    status = this.registerDevice.sendEventNotificationCommand(event.getdeviceId(),
-                            Oslp.Event.LIGHT_EVENTS_LIGHT_OFF_VALUE,
-                            "LIGHT_EVENTS_LIGHT_OFF_VALUE event occurred on light Switching off ", null);
-                }
+            // Remove the events which have been sent successfully from the
+            // original list.
+            listeventNotificationToBeSent.removeAll(sentEvents);
+        }
+    }
 
-                // when the event notification is sent successfully. Remove the
-                // event from original list. If there are multiple event for a
-                // same
-                // device then this doesnt work.
-                if (status == DeviceMessageStatus.OK) {
-                    listeventNotificationToBeSent.remove(event);
-                }
+    private boolean sendEvents(final List<EventNotificationToBeSent> events,
+            final Queue<EventNotificationToBeSent> sentEvents) {
+        boolean allSent = true;
+        for (final EventNotificationToBeSent event : events) {
+
+            DeviceMessageStatus status;
+
+            if (event.getLightOn()) {
+                // Send EventNotifications for Light Transition ON
+                LOGGER.info("Sending LIGHT_EVENTS_LIGHT_ON_VALUE event for device : {}", event.getdeviceId());
+                status = this.registerDevice.sendEventNotificationCommand(event.getdeviceId(),
+                        Oslp.Event.LIGHT_EVENTS_LIGHT_ON_VALUE,
+                        "LIGHT_EVENTS_LIGHT_ON_VALUE event occurred on Light Switching on ", null);
+
+            } else {
+                // Send EventNotifications for Light Transition OFF
+                LOGGER.info("Sending LIGHT_EVENTS_LIGHT_OFF_VALUE event for device : {}", event.getdeviceId());
+                status = this.registerDevice.sendEventNotificationCommand(event.getdeviceId(),
+                        Oslp.Event.LIGHT_EVENTS_LIGHT_OFF_VALUE,
+                        "LIGHT_EVENTS_LIGHT_OFF_VALUE event occurred on light Switching off ", null);
+            }
 
+            if (status == DeviceMessageStatus.OK) {
+                sentEvents.add(event);
+            } else {
+                allSent = false;
             }
-            // The local list of events
-            listOfEvents.clear();
         }
+        return allSent;
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import com.alliander.osgp.oslp.Oslp;
 import com.alliander.osgp.webdevicesimulator.application.services.DeviceManagementService;
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
+import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
 import com.alliander.osgp.webdevicesimulator.domain.repositories.DeviceRepository;
 import com.alliander.osgp.webdevicesimulator.service.RegisterDevice;
 import com.alliander.osgp.webdevicesimulator.service.SwitchingServices;
@@ -31,6 +32,9 @@ public class LightSwitchingOn implements Runnable {
     @Autowired
     private DeviceManagementService deviceManagementService;
 
+    @Autowired
+    private DeviceFanOut deviceFanOut;
+
     @Override
     public void run() {
 
@@ -39,19 +43,21 @@ public class LightSwitchingOn implements Runnable {
 
             final List<Device> devices = this.deviceRepository.findByHasEveningMorningBurner(false);
 
-            for (final Device device : devices) {
-                LOGGER.info("Light switching for : {}: {} ", device.getId(), device.getDeviceIdentification());
+            this.deviceFanOut.run("Light switching on", devices, this::switchLightOn);
+        }
+    }
+
+    private boolean switchLightOn(final Device device) {
+        LOGGER.info("Light switching for : {}: {} ", device.getId(), device.getDeviceIdentification());
 
-                // Switching on Light
-                this.switchingServices.lightSwitchOn(device.getId());
+        // Switching on Light
+        this.switchingServices.lightSwitchOn(device.getId());
 
-                // Send EventNotifications for LightSwitching on
-                LOGGER.info("Sending LIGHT_EVENTS_LIGHT_ON event for device : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendEventNotificationCommand(device.getId(),
-                        Oslp.Event.LIGHT_EVENTS_LIGHT_ON_VALUE,
-                        "LIGHT_EVENTS_LIGHT_ON event occurred on Light Switching on ", null);
-            }
-        }
+        // Send EventNotifications for LightSwitching on
+        LOGGER.info("Sending LIGHT_EVENTS_LIGHT_ON event for device : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
+        return DeviceMessageStatus.OK == this.registerDevice.sendEventNotificationCommand(device.getId(),
+                Oslp.Event.LIGHT_EVENTS_LIGHT_ON_VALUE,
+                "LIGHT_EVENTS_LIGHT_ON event occurred on Light Switching on ", null);
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import com.alliander.osgp.oslp.Oslp;
 import com.alliander.osgp.webdevicesimulator.application.services.DeviceManagementService;
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
+import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
 import com.alliander.osgp.webdevicesimulator.domain.repositories.DeviceRepository;
 import com.alliander.osgp.webdevicesimulator.service.RegisterDevice;
 import com.alliander.osgp.webdevicesimulator.service.SwitchingServices;
@@ -31,6 +32,9 @@ public class TariffSwitchingHigh implements Runnable {
     @Autowired
     private DeviceManagementService deviceManagementService;
 
+    @Autowired
+    private DeviceFanOut deviceFanOut;
+
     @Override
     public void run() {
 
@@ -39,19 +43,21 @@ public class TariffSwitchingHigh implements Runnable {
 
             final List<Device> devices = this.deviceRepository.findAll();
 
-            for (final Device device : devices) {
-                LOGGER.info("Tariff switching on for : {}: {} ", device.getId(), device.getDeviceIdentification());
+            this.deviceFanOut.run("Tariff switching high", devices, this::switchTariffHigh);
+        }
+    }
+
+    private boolean switchTariffHigh(final Device device) {
+        LOGGER.info("Tariff switching on for : {}: {} ", device.getId(), device.getDeviceIdentification());
 
-                // Switching on Tariff
-                this.switchingServices.tariffSwitchHigh(device.getId());
+        // Switching on Tariff
+        this.switchingServices.tariffSwitchHigh(device.getId());
 
-                // Send EventNotifications for TariffSwitching Off
-                LOGGER.info("Sending TARIFF_EVENTS_TARIFF_ON event for device : {}: {} ", device.getId(),
-                        device.getDeviceIdentification());
-                this.registerDevice.sendEventNotificationCommand(device.getId(),
-                        Oslp.Event.TARIFF_EVENTS_TARIFF_ON_VALUE,
-                        "TARIFF_EVENTS_TARIFF_ON event occurred on Tariff Switching high ", 1);
-            }
-        }
+        // Send EventNotifications for TariffSwitching Off
+        LOGGER.info("Sending TARIFF_EVENTS_TARIFF_ON event for device : {}: {} ", device.getId(),
+                device.getDeviceIdentification());
+        return DeviceMessageStatus.OK == this.registerDevice.sendEventNotificationCommand(device.getId(),
+                Oslp.Event.TARIFF_EVENTS_TARIFF_ON_VALUE,
+                "TARIFF_EVENTS_TARIFF_ON event occurred on Tariff Switching high ", 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.service;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs delayed device actions, like event notifications and registrations
+ * after a reboot, on a shared pool with a fixed number of threads. The number
+ * of actions running at the same time is limited to the pool size, any other
+ * action waits in the queue until a thread is available.
+ */
+public class DeviceEventScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceEventScheduler.class);
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * @param poolSize
+     *            maximum number of actions running at the same time.
+     */
+    public DeviceEventScheduler(final int poolSize) {
+        LOGGER.info("Created device event scheduler with pool size: {}", poolSize);
+        this.executor = new ScheduledThreadPoolExecutor(poolSize, new ThreadFactoryBuilder().setNameFormat(
+                "device-event-%d").build());
+    }
+
+    /**
+     * Run the action after the delay in milliseconds. Exceptions thrown by the
+     * action are logged.
+     */
+    public void schedule(final String description, final Runnable action, final long delay) {
+        this.pendingCount.incrementAndGet();
+        this.executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                DeviceEventScheduler.this.pendingCount.decrementAndGet();
+                try {
+                    action.run();
+                } catch (final RuntimeException e) {
+                    LOGGER.error("Unexpected exception during {}", description, e);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scheduler, discarding the pending actions. Called by Spring
+     * when the application context is closed.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of actions waiting for their delay to pass or for a
+     *         thread to become available.
+     */
+    public int getPendingCount() {
+        return this.pendingCount.get();
+    }
+
+    /**
+     * @return the number of actions running.
+     */
+    public int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+}
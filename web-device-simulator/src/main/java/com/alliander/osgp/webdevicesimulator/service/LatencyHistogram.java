@@ -0,0 +1,122 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies in milliseconds, using fixed buckets of
+ * roughly logarithmic size. Percentiles are reported as the upper bound of the
+ * bucket containing the percentile, so "p99 <= 250 ms".
+ */
+public class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS = { 1, 2, 3, 4, 5, 6, 8, 10, 12, 15, 20, 25, 30, 40, 50, 60, 80, 100,
+            120, 150, 200, 250, 300, 400, 500, 600, 800, 1000, 1200, 1500, 2000, 2500, 3000, 4000, 5000, 6000, 8000,
+            10000, 12000, 15000, 20000, 30000, 60000 };
+
+    // The last bucket counts the latencies above the largest bound.
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long latency) {
+        this.counts.incrementAndGet(bucketOf(latency));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(latency);
+
+        long currentMax = this.max.get();
+        while (latency > currentMax && !this.max.compareAndSet(currentMax, latency)) {
+            currentMax = this.max.get();
+        }
+    }
+
+    private static int bucketOf(final long latency) {
+        int low = 0;
+        int high = BUCKET_BOUNDS.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (BUCKET_BOUNDS[middle] < latency) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public long getMean() {
+        final long total = this.count.get();
+        return total == 0 ? 0 : this.sum.get() / total;
+    }
+
+    /**
+     * @param percentile
+     *            percentile between 0 and 100.
+     * @return the upper bound of the bucket containing the percentile, at most
+     *         the maximum latency, or 0 when nothing has been recorded.
+     */
+    public long getPercentile(final double percentile) {
+        final long total = this.count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * @return the counts of the non-empty buckets, like
+     *         "<=10 ms: 4, <=12 ms: 17, >60000 ms: 1".
+     */
+    public String formatBuckets() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < this.counts.length(); i++) {
+            final long bucketCount = this.counts.get(i);
+            if (bucketCount == 0) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            if (i < BUCKET_BOUNDS.length) {
+                builder.append("<=").append(BUCKET_BOUNDS[i]);
+            } else {
+                builder.append('>').append(BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1]);
+            }
+            builder.append(" ms: ").append(bucketCount);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%d ms, p50<=%d ms, p90<=%d ms, p99<=%d ms, p99.9<=%d ms, max=%d ms",
+                this.getCount(), this.getMean(), this.getPercentile(50), this.getPercentile(90),
+                this.getPercentile(99), this.getPercentile(99.9), this.getMax());
+    }
+}
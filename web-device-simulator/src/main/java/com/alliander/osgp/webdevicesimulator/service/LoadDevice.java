@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.service;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.alliander.osgp.oslp.OslpEnvelope;
+
+/**
+ * Simulated device of the {@link LoadGenerator}, kept in memory only. A device
+ * has at most one request in flight: the sender acquires the device before
+ * building a request and releases it when the conversation has finished, which
+ * also publishes the updated sequence number and random numbers to the next
+ * sender.
+ */
+public class LoadDevice {
+
+    public static final int SEQUENCE_NUMBER_MAXIMUM = 65535;
+
+    public enum State {
+        UNREGISTERED,
+        REGISTERED
+    }
+
+    private final int index;
+    private final String deviceIdentification;
+    private final String deviceUid;
+
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    private volatile State state = State.UNREGISTERED;
+    private int sequenceNumber;
+    private int randomDevice;
+    private int randomPlatform;
+
+    public LoadDevice(final int index, final String deviceIdentification, final Random random) {
+        this.index = index;
+        this.deviceIdentification = deviceIdentification;
+
+        // Manufacturer id of 2 bytes (1 is AME) followed by a random UID.
+        final byte[] uid = new byte[OslpEnvelope.MANUFACTURER_ID_LENGTH + OslpEnvelope.DEVICE_ID_LENGTH];
+        random.nextBytes(uid);
+        uid[0] = 0;
+        uid[1] = 1;
+        this.deviceUid = Base64.encodeBase64String(uid);
+    }
+
+    /**
+     * @return true if the device was idle and is now owned by the caller.
+     */
+    public boolean acquire() {
+        return this.busy.compareAndSet(false, true);
+    }
+
+    public void release() {
+        this.busy.set(false);
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    public String getDeviceIdentification() {
+        return this.deviceIdentification;
+    }
+
+    public String getDeviceUid() {
+        return this.deviceUid;
+    }
+
+    /**
+     * @return the IP address reported at registration, unique per device.
+     */
+    public byte[] getIpAddress() {
+        return new byte[] { 10, (byte) (this.index >>> 16), (byte) (this.index >>> 8), (byte) this.index };
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    public void setState(final State state) {
+        this.state = state;
+    }
+
+    public int getSequenceNumber() {
+        return this.sequenceNumber;
+    }
+
+    public void setSequenceNumber(final int sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public int getNextSequenceNumber() {
+        return this.sequenceNumber >= SEQUENCE_NUMBER_MAXIMUM ? 0 : this.sequenceNumber + 1;
+    }
+
+    public int getRandomDevice() {
+        return this.randomDevice;
+    }
+
+    public void setRandomDevice(final int randomDevice) {
+        this.randomDevice = randomDevice;
+    }
+
+    public int getRandomPlatform() {
+        return this.randomPlatform;
+    }
+
+    public void setRandomPlatform(final int randomPlatform) {
+        this.randomPlatform = randomPlatform;
+    }
+}
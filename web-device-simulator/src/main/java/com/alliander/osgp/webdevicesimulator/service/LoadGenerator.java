@@ -0,0 +1,757 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.service;
+
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandler.Sharable;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import com.alliander.osgp.oslp.Oslp;
+import com.alliander.osgp.oslp.Oslp.Message;
+import com.alliander.osgp.oslp.OslpDecoder;
+import com.alliander.osgp.oslp.OslpEncoder;
+import com.alliander.osgp.oslp.OslpEnvelope;
+import com.alliander.osgp.webdevicesimulator.domain.valueobjects.ProtocolType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+
+/**
+ * Headless load generator, simulating a large number of devices which register
+ * and send event notifications to the platform at configurable rates.
+ *
+ * The devices are kept in memory only, nothing is written to the database.
+ * Requests are sent without blocking: a single scheduler thread starts new
+ * conversations at the configured rates, as long as the number of requests in
+ * flight is below the maximum, and the responses are handled on the Netty I/O
+ * threads. A registration consists of a register device request followed by a
+ * confirm register device request. Event notifications are sent by randomly
+ * chosen registered devices. Unless repeated registrations are enabled, every
+ * device registers once.
+ *
+ * The latency of each successful request, from connecting until the response
+ * has been received, is recorded per request type. The statistics are logged
+ * at every report interval and when the load generator stops.
+ */
+public class LoadGenerator implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long TICK_INTERVAL = 10;
+
+    private static final int DEVICE_SELECTION_ATTEMPTS = 10;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormat.forPattern("yyyyMMddHHmmss")
+            .withZone(DateTimeZone.UTC);
+
+    public enum RequestType {
+        REGISTER_DEVICE,
+        CONFIRM_REGISTER_DEVICE,
+        EVENT_NOTIFICATION
+    }
+
+    private boolean enabled;
+    private int deviceCount = 10000;
+    private String deviceIdentificationPrefix = "LOAD-";
+    private ProtocolType protocol = ProtocolType.OSLP_ELSTER;
+    private double registrationRate = 100;
+    private boolean repeatRegistrations;
+    private double eventNotificationRate = 100;
+    private int maxInFlight = 1000;
+    private long responseTimeout = 30000;
+    private long duration;
+    private long reportInterval = 10000;
+    private int ioThreadCount;
+
+    @Autowired
+    private RegisterDevice registerDevice;
+
+    @Resource
+    private SimpleChannelHandler oslpSecurityHandler;
+
+    @Resource
+    private String oslpSignature;
+
+    @Resource
+    private String oslpSignatureProvider;
+
+    @Resource
+    private String oslpAddressServer;
+
+    @Resource
+    private int oslpPortClient;
+
+    @Resource
+    private int oslpElsterPortClient;
+
+    @Resource
+    private int connectionTimeout;
+
+    private final Map<RequestType, RequestStatistics> statistics = new EnumMap<>(RequestType.class);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicInteger registeredDeviceCount = new AtomicInteger();
+
+    // Idle devices which have not (yet) registered.
+    private final Queue<LoadDevice> unregisteredDevices = new ConcurrentLinkedQueue<>();
+
+    private final Random random = new Random();
+
+    private LoadDevice[] devices;
+    private InetSocketAddress address;
+    private ClientBootstrap bootstrap;
+    private Timer timer;
+    private ScheduledExecutorService scheduler;
+
+    // Only used by the scheduler thread.
+    private long startTime;
+    private long lastTickTime;
+    private double registrationCredit;
+    private double eventNotificationCredit;
+
+    public LoadGenerator() {
+        for (final RequestType type : RequestType.values()) {
+            this.statistics.put(type, new RequestStatistics());
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        if (this.enabled && this.running.compareAndSet(false, true)) {
+            this.start();
+        }
+    }
+
+    private void start() {
+        this.address = new InetSocketAddress(this.oslpAddressServer,
+                this.protocol == ProtocolType.OSLP_ELSTER ? this.oslpElsterPortClient : this.oslpPortClient);
+        LOGGER.info("Starting load generator with {} {} devices sending {} registrations/s and {} event "
+                + "notifications/s to {}, at most {} requests in flight", this.deviceCount, this.protocol,
+                this.registrationRate, this.eventNotificationRate, this.address, this.maxInFlight);
+
+        this.devices = new LoadDevice[this.deviceCount];
+        for (int i = 0; i < this.deviceCount; i++) {
+            this.devices[i] = new LoadDevice(i, String.format("%s%06d", this.deviceIdentificationPrefix, i),
+                    this.random);
+            this.unregisteredDevices.add(this.devices[i]);
+        }
+
+        this.timer = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("load-generator-timer").build());
+        this.bootstrap = this.createBootstrap();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
+                "load-generator").build());
+
+        this.startTime = System.nanoTime();
+        this.lastTickTime = this.startTime;
+        this.scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    LoadGenerator.this.tick();
+                } catch (final RuntimeException e) {
+                    LOGGER.error("Unexpected exception in load generator", e);
+                }
+            }
+        }, TICK_INTERVAL, TICK_INTERVAL, TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                LoadGenerator.this.report();
+            }
+        }, this.reportInterval, this.reportInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private ClientBootstrap createBootstrap() {
+        final int workerCount = this.ioThreadCount > 0 ? this.ioThreadCount : Runtime.getRuntime()
+                .availableProcessors() * 2;
+        final ClientBootstrap clientBootstrap = new ClientBootstrap(new NioClientSocketChannelFactory(
+                Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("load-generator-boss-%d")
+                        .build()), Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(
+                        "load-generator-worker-%d").build()), 1, workerCount));
+
+        final ResponseHandler responseHandler = new ResponseHandler();
+        clientBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            @Override
+            public ChannelPipeline getPipeline() {
+                final ChannelPipeline pipeline = Channels.pipeline();
+                pipeline.addLast("oslpEncoder", new OslpEncoder());
+                pipeline.addLast("oslpDecoder", new OslpDecoder(LoadGenerator.this.oslpSignature,
+                        LoadGenerator.this.oslpSignatureProvider));
+                pipeline.addLast("oslpSecurity", LoadGenerator.this.oslpSecurityHandler);
+                pipeline.addLast("loadResponseHandler", responseHandler);
+                return pipeline;
+            }
+        });
+
+        clientBootstrap.setOption("tcpNoDelay", true);
+        clientBootstrap.setOption("keepAlive", false);
+        clientBootstrap.setOption("connectTimeoutMillis", this.connectionTimeout);
+        return clientBootstrap;
+    }
+
+    /**
+     * Stops sending requests and logs the final statistics. Called when the
+     * duration has passed, and by Spring when the application context is
+     * closed.
+     */
+    public void stop() {
+        if (!this.running.compareAndSet(true, false)) {
+            return;
+        }
+        this.scheduler.shutdown();
+        LOGGER.info("Stopped load generator after {} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startTime));
+        this.report();
+        this.timer.stop();
+        this.bootstrap.releaseExternalResources();
+    }
+
+    private void tick() {
+        final long now = System.nanoTime();
+        final double elapsedSeconds = (now - this.lastTickTime) / 1e9;
+        this.lastTickTime = now;
+
+        if (this.duration > 0 && TimeUnit.NANOSECONDS.toMillis(now - this.startTime) >= this.duration) {
+            this.stop();
+            return;
+        }
+
+        this.registrationCredit = this.addCredit(this.registrationCredit, this.registrationRate, elapsedSeconds);
+        while (this.registrationCredit >= 1 && this.inFlightCount.get() < this.maxInFlight) {
+            final LoadDevice device = this.nextDeviceToRegister();
+            if (device == null) {
+                break;
+            }
+            this.registrationCredit--;
+            this.sendRequest(device, RequestType.REGISTER_DEVICE);
+        }
+
+        this.eventNotificationCredit = this.addCredit(this.eventNotificationCredit, this.eventNotificationRate,
+                elapsedSeconds);
+        while (this.eventNotificationCredit >= 1 && this.inFlightCount.get() < this.maxInFlight) {
+            final LoadDevice device = this.nextRegisteredDevice();
+            if (device == null) {
+                break;
+            }
+            this.eventNotificationCredit--;
+            this.sendRequest(device, RequestType.EVENT_NOTIFICATION);
+        }
+    }
+
+    /**
+     * Credit which has not been used within a second is dropped, so the
+     * platform does not get a burst of requests after the maximum number of
+     * requests in flight has been reached for a while.
+     */
+    private double addCredit(final double credit, final double rate, final double elapsedSeconds) {
+        return Math.min(credit + rate * elapsedSeconds, Math.max(1, rate));
+    }
+
+    /**
+     * @return an acquired unregistered device, or a registered device if all
+     *         devices have registered and registrations are repeated.
+     */
+    private LoadDevice nextDeviceToRegister() {
+        final LoadDevice device = this.unregisteredDevices.poll();
+        if (device != null) {
+            device.acquire();
+            return device;
+        }
+        if (!this.repeatRegistrations) {
+            return null;
+        }
+
+        final LoadDevice registeredDevice = this.nextRegisteredDevice();
+        if (registeredDevice != null) {
+            registeredDevice.setState(LoadDevice.State.UNREGISTERED);
+            this.registeredDeviceCount.decrementAndGet();
+        }
+        return registeredDevice;
+    }
+
+    /**
+     * @return a randomly chosen, acquired registered device, or null if no
+     *         idle registered device was found.
+     */
+    private LoadDevice nextRegisteredDevice() {
+        if (this.registeredDeviceCount.get() == 0) {
+            return null;
+        }
+        for (int i = 0; i < DEVICE_SELECTION_ATTEMPTS; i++) {
+            final LoadDevice device = this.devices[this.random.nextInt(this.devices.length)];
+            if (device.getState() == LoadDevice.State.REGISTERED && device.acquire()) {
+                if (device.getState() == LoadDevice.State.REGISTERED) {
+                    return device;
+                }
+                device.release();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends the next request of the acquired device.
+     */
+    private void sendRequest(final LoadDevice device, final RequestType type) {
+        if (!this.running.get()) {
+            device.release();
+            return;
+        }
+
+        final boolean register = type == RequestType.REGISTER_DEVICE;
+        final PendingRequest pending = new PendingRequest(device, type,
+                register ? this.random.nextInt(LoadDevice.SEQUENCE_NUMBER_MAXIMUM + 1) : device
+                        .getNextSequenceNumber(),
+                register ? this.random.nextInt(LoadDevice.SEQUENCE_NUMBER_MAXIMUM + 1) : device.getRandomDevice());
+
+        final OslpEnvelope request;
+        try {
+            request = this.registerDevice.createEnvelopeBuilder(device.getDeviceUid(), pending.sequenceNumber)
+                    .withPayloadMessage(this.createPayloadMessage(pending)).build();
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to create {} request for device {}", type, device.getDeviceIdentification(), e);
+            this.statistics.get(type).failedCount.incrementAndGet();
+            this.conversationFailed(pending);
+            return;
+        }
+
+        // The platform advances its sequence number of the device as soon as
+        // it receives the request, also when the response gets lost.
+        device.setSequenceNumber(pending.sequenceNumber);
+
+        this.statistics.get(type).sentCount.incrementAndGet();
+        this.inFlightCount.incrementAndGet();
+        pending.timeout = this.timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) {
+                LoadGenerator.this.timedOut(pending);
+            }
+        }, this.responseTimeout, TimeUnit.MILLISECONDS);
+
+        final ChannelFuture connectFuture = this.bootstrap.connect(this.address);
+        pending.channel = connectFuture.getChannel();
+        pending.channel.setAttachment(pending);
+        connectFuture.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final ChannelFuture future) {
+                if (future.isSuccess()) {
+                    future.getChannel().write(request);
+                } else {
+                    LoadGenerator.this.failed(pending, future.getCause());
+                }
+            }
+        });
+    }
+
+    private Message createPayloadMessage(final PendingRequest pending) {
+        final LoadDevice device = pending.device;
+        switch (pending.type) {
+        case REGISTER_DEVICE:
+            return Message
+                    .newBuilder()
+                    .setRegisterDeviceRequest(
+                            Oslp.RegisterDeviceRequest.newBuilder()
+                                    .setDeviceIdentification(device.getDeviceIdentification())
+                                    .setIpAddress(ByteString.copyFrom(device.getIpAddress()))
+                                    .setDeviceType(Oslp.DeviceType.SSLD).setHasSchedule(false)
+                                    .setRandomDevice(pending.randomDevice)).build();
+        case CONFIRM_REGISTER_DEVICE:
+            return Message
+                    .newBuilder()
+                    .setConfirmRegisterDeviceRequest(
+                            Oslp.ConfirmRegisterDeviceRequest.newBuilder().setRandomDevice(device.getRandomDevice())
+                                    .setRandomPlatform(device.getRandomPlatform())).build();
+        case EVENT_NOTIFICATION:
+        default:
+            final Oslp.EventNotification.Builder eventNotification = Oslp.EventNotification.newBuilder()
+                    .setEvent(pending.sequenceNumber % 2 == 0 ? Oslp.Event.LIGHT_EVENTS_LIGHT_ON
+                            : Oslp.Event.LIGHT_EVENTS_LIGHT_OFF).setIndex(ByteString.copyFrom(new byte[] { 0 }));
+            if (this.protocol == ProtocolType.OSLP_ELSTER) {
+                eventNotification.setTimestamp(TIMESTAMP_FORMAT.print(DateTime.now()));
+            } else {
+                eventNotification.setDescription("");
+            }
+            return Message.newBuilder()
+                    .setEventNotificationRequest(
+                            Oslp.EventNotificationRequest.newBuilder().addNotifications(eventNotification)).build();
+        }
+    }
+
+    /**
+     * Marks the request as finished, exactly once.
+     *
+     * @return false if the request had already finished.
+     */
+    private boolean finish(final PendingRequest pending) {
+        if (!pending.finished.compareAndSet(false, true)) {
+            return false;
+        }
+        pending.timeout.cancel();
+        this.inFlightCount.decrementAndGet();
+        return true;
+    }
+
+    private void responseReceived(final PendingRequest pending, final OslpEnvelope response) {
+        if (!this.finish(pending)) {
+            return;
+        }
+
+        final RequestStatistics requestStatistics = this.statistics.get(pending.type);
+        final String error = this.checkResponse(pending, response);
+        if (error != null) {
+            LOGGER.debug("{} of device {} failed: {}", pending.type, pending.device.getDeviceIdentification(), error);
+            requestStatistics.failedCount.incrementAndGet();
+            this.conversationFailed(pending);
+            return;
+        }
+
+        requestStatistics.succeededCount.incrementAndGet();
+        requestStatistics.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pending.startTime));
+        this.conversationSucceeded(pending, response);
+    }
+
+    private void failed(final PendingRequest pending, final Throwable cause) {
+        if (this.finish(pending)) {
+            LOGGER.debug("{} of device {} failed", pending.type, pending.device.getDeviceIdentification(), cause);
+            this.statistics.get(pending.type).failedCount.incrementAndGet();
+            this.conversationFailed(pending);
+        }
+    }
+
+    private void timedOut(final PendingRequest pending) {
+        if (this.finish(pending)) {
+            LOGGER.debug("{} of device {} timed out", pending.type, pending.device.getDeviceIdentification());
+            this.statistics.get(pending.type).timedOutCount.incrementAndGet();
+            if (pending.channel != null) {
+                pending.channel.close();
+            }
+            this.conversationFailed(pending);
+        }
+    }
+
+    /**
+     * @return a description of what is wrong with the response, or null if the
+     *         response is valid.
+     */
+    private String checkResponse(final PendingRequest pending, final OslpEnvelope response) {
+        final byte[] bytes = response.getSequenceNumber();
+        final int sequenceNumber = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        if (sequenceNumber != pending.sequenceNumber) {
+            return "sequence number " + sequenceNumber + " instead of " + pending.sequenceNumber;
+        }
+
+        final Message payload = response.getPayloadMessage();
+        switch (pending.type) {
+        case REGISTER_DEVICE:
+            if (!payload.hasRegisterDeviceResponse()) {
+                return "no register device response";
+            }
+            if (payload.getRegisterDeviceResponse().getStatus() != Oslp.Status.OK) {
+                return "status " + payload.getRegisterDeviceResponse().getStatus();
+            }
+            if (payload.getRegisterDeviceResponse().getRandomDevice() != pending.randomDevice) {
+                return "incorrect random device number";
+            }
+            return null;
+        case CONFIRM_REGISTER_DEVICE:
+            if (!payload.hasConfirmRegisterDeviceResponse()) {
+                return "no confirm register device response";
+            }
+            if (payload.getConfirmRegisterDeviceResponse().getStatus() != Oslp.Status.OK) {
+                return "status " + payload.getConfirmRegisterDeviceResponse().getStatus();
+            }
+            if (payload.getConfirmRegisterDeviceResponse().getRandomDevice() != pending.device.getRandomDevice()
+                    || payload.getConfirmRegisterDeviceResponse().getRandomPlatform() != pending.device
+                            .getRandomPlatform()) {
+                return "incorrect random numbers";
+            }
+            return null;
+        case EVENT_NOTIFICATION:
+        default:
+            if (!payload.hasEventNotificationResponse()) {
+                return "no event notification response";
+            }
+            if (payload.getEventNotificationResponse().getStatus() != Oslp.Status.OK) {
+                return "status " + payload.getEventNotificationResponse().getStatus();
+            }
+            return null;
+        }
+    }
+
+    private void conversationSucceeded(final PendingRequest pending, final OslpEnvelope response) {
+        final LoadDevice device = pending.device;
+
+        switch (pending.type) {
+        case REGISTER_DEVICE:
+            device.setRandomDevice(pending.randomDevice);
+            device.setRandomPlatform(response.getPayloadMessage().getRegisterDeviceResponse().getRandomPlatform());
+            // The device stays acquired until the registration is confirmed.
+            try {
+                this.scheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        LoadGenerator.this.sendRequest(device, RequestType.CONFIRM_REGISTER_DEVICE);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                LOGGER.debug("Load generator stopped, not confirming registration of device {}",
+                        device.getDeviceIdentification());
+                device.release();
+            }
+            break;
+        case CONFIRM_REGISTER_DEVICE:
+            device.setState(LoadDevice.State.REGISTERED);
+            this.registeredDeviceCount.incrementAndGet();
+            device.release();
+            break;
+        case EVENT_NOTIFICATION:
+        default:
+            device.release();
+            break;
+        }
+    }
+
+    private void conversationFailed(final PendingRequest pending) {
+        final LoadDevice device = pending.device;
+        device.release();
+        if (pending.type != RequestType.EVENT_NOTIFICATION) {
+            this.unregisteredDevices.add(device);
+        }
+    }
+
+    private void report() {
+        LOGGER.info("Load generator: {} of {} devices registered, {} requests in flight",
+                this.registeredDeviceCount.get(), this.deviceCount, this.inFlightCount.get());
+        for (final RequestType type : RequestType.values()) {
+            LOGGER.info("{}: {}", type, this.statistics.get(type));
+        }
+    }
+
+    public RequestStatistics getStatistics(final RequestType type) {
+        return this.statistics.get(type);
+    }
+
+    public int getInFlightCount() {
+        return this.inFlightCount.get();
+    }
+
+    public int getRegisteredDeviceCount() {
+        return this.registeredDeviceCount.get();
+    }
+
+    public boolean isRunning() {
+        return this.running.get();
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setDeviceCount(final int deviceCount) {
+        this.deviceCount = deviceCount;
+    }
+
+    public void setDeviceIdentificationPrefix(final String deviceIdentificationPrefix) {
+        this.deviceIdentificationPrefix = deviceIdentificationPrefix;
+    }
+
+    public void setProtocol(final ProtocolType protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * @param registrationRate
+     *            number of registrations started per second.
+     */
+    public void setRegistrationRate(final double registrationRate) {
+        this.registrationRate = registrationRate;
+    }
+
+    /**
+     * @param repeatRegistrations
+     *            let registered devices register again once all devices have
+     *            registered.
+     */
+    public void setRepeatRegistrations(final boolean repeatRegistrations) {
+        this.repeatRegistrations = repeatRegistrations;
+    }
+
+    /**
+     * @param eventNotificationRate
+     *            number of event notifications sent per second.
+     */
+    public void setEventNotificationRate(final double eventNotificationRate) {
+        this.eventNotificationRate = eventNotificationRate;
+    }
+
+    public void setMaxInFlight(final int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @param responseTimeout
+     *            time in milliseconds after which a request without response
+     *            is counted as timed out.
+     */
+    public void setResponseTimeout(final long responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    /**
+     * @param duration
+     *            time in milliseconds after which the load generator stops, 0
+     *            runs until the application stops.
+     */
+    public void setDuration(final long duration) {
+        this.duration = duration;
+    }
+
+    public void setReportInterval(final long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * @param ioThreadCount
+     *            number of Netty I/O threads, 0 uses twice the number of
+     *            available processors.
+     */
+    public void setIoThreadCount(final int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    /**
+     * Counters and latencies of one request type.
+     */
+    public static class RequestStatistics {
+        private final AtomicLong sentCount = new AtomicLong();
+        private final AtomicLong succeededCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong timedOutCount = new AtomicLong();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        public long getSentCount() {
+            return this.sentCount.get();
+        }
+
+        public long getSucceededCount() {
+            return this.succeededCount.get();
+        }
+
+        public long getFailedCount() {
+            return this.failedCount.get();
+        }
+
+        public long getTimedOutCount() {
+            return this.timedOutCount.get();
+        }
+
+        public LatencyHistogram getLatencies() {
+            return this.latencies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sent=%d, succeeded=%d, failed=%d, timed out=%d, latency: %s",
+                    this.getSentCount(), this.getSucceededCount(), this.getFailedCount(), this.getTimedOutCount(),
+                    this.latencies);
+        }
+    }
+
+    private static class PendingRequest {
+        private final LoadDevice device;
+        private final RequestType type;
+        private final int sequenceNumber;
+        private final int randomDevice;
+        private final long startTime = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile Timeout timeout;
+        private volatile Channel channel;
+
+        PendingRequest(final LoadDevice device, final RequestType type, final int sequenceNumber,
+                final int randomDevice) {
+            this.device = device;
+            this.type = type;
+            this.sequenceNumber = sequenceNumber;
+            this.randomDevice = randomDevice;
+        }
+    }
+
+    /**
+     * Handles the responses of the platform. The device initiated the
+     * conversation, so it closes the channel once the response has arrived.
+     */
+    @Sharable
+    private class ResponseHandler extends SimpleChannelHandler {
+
+        @Override
+        public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) {
+            final PendingRequest pending = (PendingRequest) ctx.getChannel().getAttachment();
+            if (pending != null) {
+                LoadGenerator.this.responseReceived(pending, (OslpEnvelope) e.getMessage());
+            }
+            ctx.getChannel().close();
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final ExceptionEvent e) {
+            final PendingRequest pending = (PendingRequest) ctx.getChannel().getAttachment();
+            if (pending != null) {
+                LoadGenerator.this.failed(pending, e.getCause());
+            }
+            ctx.getChannel().close();
+        }
+
+        @Override
+        public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) {
+            final PendingRequest pending = (PendingRequest) ctx.getChannel().getAttachment();
+            if (pending != null) {
+                LoadGenerator.this.failed(pending, null);
+            }
+        }
+    }
+}
@@ -18,23 +18,24 @@ import java.util.Date;
 import java.util.List;
 import java.util.Random;
 import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.codec.binary.Base64;
 import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Minutes;
@@ -84,8 +85,6 @@ import com.alliander.osgp.webdevicesimulator.application.services.DeviceManageme
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
 import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
 import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceOutputSetting;
-import com.alliander.osgp.webdevicesimulator.domain.entities.OslpLogItem;
-import com.alliander.osgp.webdevicesimulator.domain.repositories.OslpLogItemRepository;
 import com.alliander.osgp.webdevicesimulator.domain.valueobjects.LightType;
 import com.alliander.osgp.webdevicesimulator.domain.valueobjects.LinkType;
 import com.alliander.osgp.webdevicesimulator.domain.valueobjects.OutputType;
@@ -134,7 +133,7 @@ public class OslpChannelHandler extends SimpleChannelHandler {
     }
 
     @Autowired
-    private OslpLogItemRepository oslpLogItemRepository;
+    private OslpLogItemWriter oslpLogItemWriter;
 
     @Autowired
     private PrivateKey privateKey;
@@ -178,8 +177,6 @@ public class OslpChannelHandler extends SimpleChannelHandler {
     @Autowired
     private RegisterDevice registerDevice;
 
-    private final Lock lock = new ReentrantLock();
-
     private final ConcurrentMap<Integer, Callback> callbacks = new ConcurrentHashMap<>();
 
     @Autowired
@@ -188,7 +185,7 @@ public class OslpChannelHandler extends SimpleChannelHandler {
     @Autowired
     private Integer sequenceNumberMaximum;
 
-    private final List<OutOfSequenceEvent> outOfSequenceList = new ArrayList<>();
+    private final List<OutOfSequenceEvent> outOfSequenceList = new CopyOnWriteArrayList<>();
 
     @Autowired
     private Long responseDelayTime;
@@ -196,6 +193,12 @@ public class OslpChannelHandler extends SimpleChannelHandler {
     @Autowired
     private Long reponseDelayRandomRange;
 
+    @Autowired
+    private HashedWheelTimer responseDelayTimer;
+
+    @Autowired
+    private DeviceEventScheduler deviceEventScheduler;
+
     private final Random random = new Random();
 
     private static final int CUMALATIVE_BURNING_MINUTES = 600;
@@ -236,8 +239,8 @@ public class OslpChannelHandler extends SimpleChannelHandler {
      */
     public OutOfSequenceEvent hasOutOfSequenceEventForDevice(final Long deviceId) {
         for (final OutOfSequenceEvent outOfSequenceEvent : this.outOfSequenceList) {
-            if (outOfSequenceEvent.getDeviceId().equals(deviceId)) {
-                this.outOfSequenceList.remove(outOfSequenceEvent);
+            if (outOfSequenceEvent.getDeviceId().equals(deviceId)
+                    && this.outOfSequenceList.remove(outOfSequenceEvent)) {
                 return outOfSequenceEvent;
             }
         }
@@ -256,8 +259,8 @@ public class OslpChannelHandler extends SimpleChannelHandler {
         this.oslpSignature = signature;
     }
 
-    public void setOslpLogItemRepository(final OslpLogItemRepository oslpLogItemRepository) {
-        this.oslpLogItemRepository = oslpLogItemRepository;
+    public void setOslpLogItemWriter(final OslpLogItemWriter oslpLogItemWriter) {
+        this.oslpLogItemWriter = oslpLogItemWriter;
     }
 
     public void setDeviceManagementService(final DeviceManagementService deviceManagementService) {
@@ -276,9 +279,9 @@ public class OslpChannelHandler extends SimpleChannelHandler {
     public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
         final OslpEnvelope message = (OslpEnvelope) e.getMessage();
 
-        this.oslpLogItemRepository.save(new OslpLogItem(message.getDeviceId(),
+        this.oslpLogItemWriter.write(message.getDeviceId(),
                 this.getDeviceIdentificationFromMessage(message.getPayloadMessage()), true,
-                message.getPayloadMessage()));
+                message.getPayloadMessage());
 
         if (message.isValid()) {
             if (this.isOslpResponse(message)) {
@@ -334,14 +337,13 @@ public class OslpChannelHandler extends SimpleChannelHandler {
                 responseBuilder.withPayloadMessage(this.handleRequest(message, number));
                 final OslpEnvelope response = responseBuilder.build();
 
-                this.oslpLogItemRepository.save(new OslpLogItem(response.getDeviceId(),
+                this.oslpLogItemWriter.write(response.getDeviceId(),
                         this.getDeviceIdentificationFromMessage(response.getPayloadMessage()), false,
-                        response.getPayloadMessage()));
+                        response.getPayloadMessage());
 
                 LOGGER.info("sending OSLP response with sequence number: {}",
                         this.convertByteArrayToInteger(response.getSequenceNumber()));
-                e.getChannel().write(response);
-                LOGGER.info("Send OSLP Response: {}", response.getPayloadMessage().toString().split(" ")[0]);
+                this.writeResponse(e.getChannel(), response, this.getResponseDelay());
             }
         } else {
             LOGGER.warn("Received message wasn't properly secured.");
@@ -394,27 +396,21 @@ public class OslpChannelHandler extends SimpleChannelHandler {
 
         final Callback callback = new Callback(this.connectionTimeout);
 
-        this.lock.lock();
-
-        // Open connection and send message
-        ChannelFuture channelFuture = null;
-        try {
-            channelFuture = this.bootstrap.connect(address);
-            channelFuture.awaitUninterruptibly(this.connectionTimeout, TimeUnit.MILLISECONDS);
-            if (channelFuture.getChannel() != null && channelFuture.getChannel().isConnected()) {
-                LOGGER.info("Connection established to: {}", address);
-            } else {
-                LOGGER.info("The connnection to the device {} is not successfull", deviceIdentification);
-                LOGGER.warn("Unable to connect to: {}", address);
-                throw new IOException("Unable to connect");
-            }
-
-            this.callbacks.put(channelFuture.getChannel().getId(), callback);
-            channelFuture.getChannel().write(request);
-        } finally {
-            this.lock.unlock();
+        // Open connection and send message. Connecting is thread safe, so
+        // concurrent senders only wait for their own connection.
+        final ChannelFuture channelFuture = this.bootstrap.connect(address);
+        channelFuture.awaitUninterruptibly(this.connectionTimeout, TimeUnit.MILLISECONDS);
+        if (channelFuture.getChannel() != null && channelFuture.getChannel().isConnected()) {
+            LOGGER.info("Connection established to: {}", address);
+        } else {
+            LOGGER.info("The connnection to the device {} is not successfull", deviceIdentification);
+            LOGGER.warn("Unable to connect to: {}", address);
+            throw new IOException("Unable to connect");
         }
 
+        this.callbacks.put(channelFuture.getChannel().getId(), callback);
+        channelFuture.getChannel().write(request);
+
         // wait for response and close connection
         try {
             final OslpEnvelope response = callback.get(deviceIdentification);
@@ -442,16 +438,47 @@ public class OslpChannelHandler extends SimpleChannelHandler {
                 || envelope.getPayloadMessage().hasEventNotificationResponse();
     }
 
-    private void sleep(final Long sleepTime) {
-        if (sleepTime == null || sleepTime == 0) {
+    /**
+     * @return the configured response delay time plus a random part of the
+     *         configured random range, or 0 if no delay has been configured.
+     */
+    private long getResponseDelay() {
+        if (this.responseDelayTime == null) {
+            return 0;
+        }
+        if (this.reponseDelayRandomRange == null) {
+            return this.responseDelayTime;
+        }
+        return this.responseDelayTime + (long) (this.reponseDelayRandomRange * this.random.nextDouble());
+    }
+
+    /**
+     * Writes the response, after the delay has passed. Delayed responses are
+     * written by the response delay timer, so the I/O thread is free to handle
+     * other devices in the meantime.
+     */
+    private void writeResponse(final Channel channel, final OslpEnvelope response, final long delay) {
+        if (delay <= 0) {
+            this.write(channel, response);
             return;
         }
-        try {
-            LOGGER.info("Sleeping for {} milliseconds", sleepTime);
-            Thread.sleep(sleepTime);
-        } catch (final InterruptedException e) {
-            LOGGER.info("InterruptedException", e);
+
+        LOGGER.info("Delaying response for {} milliseconds", delay);
+        this.responseDelayTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) {
+                OslpChannelHandler.this.write(channel, response);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void write(final Channel channel, final OslpEnvelope response) {
+        if (!channel.isConnected()) {
+            LOGGER.warn("Channel {} closed before the response could be sent", channel.getId());
+            return;
         }
+        channel.write(response);
+        LOGGER.info("Send OSLP Response: {}", response.getPayloadMessage().toString().split(" ")[0]);
     }
 
     private Oslp.Message handleRequest(final OslpEnvelope message, final int sequenceNumber)
@@ -488,15 +515,6 @@ public class OslpChannelHandler extends SimpleChannelHandler {
                             + message.getPayloadMessage().toString());
         }
 
-        // If responseDelayTime (and optional responseDelayRandomRange) are set,
-        // sleep for a little while
-        if (this.responseDelayTime != null && this.reponseDelayRandomRange == null) {
-            this.sleep(this.responseDelayTime);
-        } else if (this.responseDelayTime != null && this.reponseDelayRandomRange != null) {
-            final Long randomDelay = (long) (this.reponseDelayRandomRange * this.random.nextDouble());
-            this.sleep(this.responseDelayTime + randomDelay);
-        }
-
         // Handle only expected messages
         if (request.hasStartSelfTestRequest()) {
             device.setLightOn(true);
@@ -590,7 +608,7 @@ public class OslpChannelHandler extends SimpleChannelHandler {
             return;
         }
 
-        new Timer().schedule(new TimerTask() {
+        this.deviceEventScheduler.schedule("delayed registration of device " + deviceIdentification, new Runnable() {
 
             @Override
             public void run() {
@@ -1111,8 +1129,7 @@ osgp_core=# select * from event where device = (select id from device where devi
     private void sendEventWithCustomDelay(final Device device, final Oslp.Event event, final String description,
             final int delay) {
         // Send an event.
-        final Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
+        final Runnable sendEventNotification = new Runnable() {
 
             @Override
             public void run() {
@@ -1120,7 +1137,9 @@ osgp_core=# select * from event where device = (select id from device where devi
                         description, null);
             }
 
-        }, delay);
+        };
+        this.deviceEventScheduler.schedule(event + " event of device " + device.getDeviceIdentification(),
+                sendEventNotification, delay);
     }
 
     private void handleSetEventNotificationsRequest(final Device device, final SetEventNotificationsRequest request) {
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2015 Smart Society Services B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+package com.alliander.osgp.webdevicesimulator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.alliander.osgp.oslp.Oslp;
+import com.alliander.osgp.webdevicesimulator.domain.entities.OslpLogItem;
+import com.alliander.osgp.webdevicesimulator.domain.repositories.OslpLogItemRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes OSLP log items to the database in batches on a background thread, so
+ * handling a message does not wait for the database.
+ *
+ * Log items are buffered in a queue with a fixed capacity. When the queue is
+ * full, new log items are dropped and counted. With a sample rate below 1 only
+ * that fraction of the messages is logged, the other messages are skipped
+ * before a log item is created.
+ */
+public class OslpLogItemWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OslpLogItemWriter.class);
+
+    @Autowired
+    private OslpLogItemRepository oslpLogItemRepository;
+
+    private final BlockingQueue<OslpLogItem> queue;
+    private final int batchSize;
+    private final long flushInterval;
+    private final double sampleRate;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            maximum number of log items waiting to be written.
+     * @param batchSize
+     *            maximum number of log items written in one transaction.
+     * @param flushInterval
+     *            time in milliseconds between writing the waiting log items.
+     * @param sampleRate
+     *            fraction of the messages which is logged, between 0 (nothing)
+     *            and 1 (everything).
+     */
+    public OslpLogItemWriter(final int capacity, final int batchSize, final long flushInterval,
+            final double sampleRate) {
+        LOGGER.info("Created OSLP log item writer with capacity: {}, batch size: {}, flush interval: {} ms and "
+                + "sample rate: {}", capacity, batchSize, flushInterval, sampleRate);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.sampleRate = sampleRate;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("oslp-log-item-writer").build());
+    }
+
+    /**
+     * Starts writing the waiting log items. Called by Spring when the bean has
+     * been created.
+     */
+    public void start() {
+        this.executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                OslpLogItemWriter.this.flush();
+            }
+        }, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a log item for the message, unless the message is not sampled or
+     * the queue is full.
+     */
+    public void write(final byte[] deviceUid, final String deviceIdentification, final boolean incoming,
+            final Oslp.Message message) {
+        if (!this.isSampled()) {
+            this.skippedCount.incrementAndGet();
+            return;
+        }
+
+        if (!this.queue.offer(new OslpLogItem(deviceUid, deviceIdentification, incoming, message))) {
+            if (this.droppedCount.incrementAndGet() % 1000 == 1) {
+                LOGGER.warn("OSLP log item queue is full, dropped {} log items so far", this.droppedCount.get());
+            }
+        }
+    }
+
+    private boolean isSampled() {
+        if (this.sampleRate >= 1) {
+            return true;
+        }
+        return this.sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < this.sampleRate;
+    }
+
+    /**
+     * Writes all waiting log items, in batches of at most the batch size.
+     */
+    private void flush() {
+        final List<OslpLogItem> batch = new ArrayList<>(this.batchSize);
+        while (this.queue.drainTo(batch, this.batchSize) > 0) {
+            try {
+                this.oslpLogItemRepository.save(batch);
+                this.writtenCount.addAndGet(batch.size());
+            } catch (final RuntimeException e) {
+                LOGGER.error("Unable to write {} OSLP log items", batch.size(), e);
+                this.failedCount.addAndGet(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Stops the writer after writing the waiting log items. Called by Spring
+     * when the application context is closed.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(this.flushInterval + 10000, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("OSLP log item writer did not stop in time");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.flush();
+        LOGGER.info("Stopped OSLP log item writer, written: {}, dropped: {}, skipped: {}, failed: {}",
+                this.getWrittenCount(), this.getDroppedCount(), this.getSkippedCount(), this.getFailedCount());
+    }
+
+    /**
+     * @return the number of log items waiting to be written.
+     */
+    public int getPendingCount() {
+        return this.queue.size();
+    }
+
+    public long getWrittenCount() {
+        return this.writtenCount.get();
+    }
+
+    /**
+     * @return the number of log items dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * @return the number of messages not logged because of the sample rate.
+     */
+    public long getSkippedCount() {
+        return this.skippedCount.get();
+    }
+
+    /**
+     * @return the number of log items which could not be written to the
+     *         database.
+     */
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+}
@@ -37,8 +37,6 @@ import com.alliander.osgp.oslp.OslpEnvelope;
 import com.alliander.osgp.webdevicesimulator.application.services.DeviceManagementService;
 import com.alliander.osgp.webdevicesimulator.domain.entities.Device;
 import com.alliander.osgp.webdevicesimulator.domain.entities.DeviceMessageStatus;
-import com.alliander.osgp.webdevicesimulator.domain.entities.OslpLogItem;
-import com.alliander.osgp.webdevicesimulator.domain.repositories.OslpLogItemRepository;
 import com.alliander.osgp.webdevicesimulator.domain.valueobjects.ProtocolType;
 import com.alliander.osgp.webdevicesimulator.exceptions.DeviceSimulatorException;
 import com.alliander.osgp.webdevicesimulator.service.OslpChannelHandler.OutOfSequenceEvent;
@@ -56,7 +54,7 @@ public class RegisterDevice {
     private DeviceManagementService deviceManagementService;
 
     @Autowired
-    private OslpLogItemRepository oslpLogItemRepository;
+    private OslpLogItemWriter oslpLogItemWriter;
 
     @Resource
     private OslpChannelHandler oslpChannelHandler;
@@ -291,9 +289,8 @@ public class RegisterDevice {
     }
 
     private void writeOslpLogItem(final OslpEnvelope oslpEnvelope, final Device device, final boolean incoming) {
-        final OslpLogItem logItem = new OslpLogItem(oslpEnvelope.getDeviceId(), device.getDeviceIdentification(),
-                incoming, oslpEnvelope.getPayloadMessage());
-        this.oslpLogItemRepository.save(logItem);
+        this.oslpLogItemWriter.write(oslpEnvelope.getDeviceId(), device.getDeviceIdentification(), incoming,
+                oslpEnvelope.getPayloadMessage());
     }
 
     private OslpEnvelope sendRequest(final Device device, final OslpEnvelope request) throws IOException,
@@ -8,23 +8,36 @@
 package com.alliander.osgp.webdevicesimulator.web.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import com.alliander.osgp.webdevicesimulator.domain.entities.OslpLogItem;
 import com.alliander.osgp.webdevicesimulator.domain.repositories.OslpLogItemRepository;
 
 @Controller
 @RequestMapping("/logs")
 public class LogsController {
 
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final int MAXIMUM_PAGE_SIZE = 1000;
+
     @Autowired
     private OslpLogItemRepository repository;
 
     @RequestMapping(method = RequestMethod.GET)
-    public String showLogs(final Model model) {
-        model.addAttribute("logs", this.repository.findAllOrderByModificationTimeDesc());
+    public String showLogs(final Model model, @RequestParam(value = "page", defaultValue = "0") final int page,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) final int size) {
+        final PageRequest pageRequest = new PageRequest(Math.max(page, 0), Math.min(Math.max(size, 1),
+                MAXIMUM_PAGE_SIZE), Sort.Direction.DESC, "modificationTime");
+        final Page<OslpLogItem> logs = this.repository.findAll(pageRequest);
+        model.addAttribute("logs", logs.getContent());
+        model.addAttribute("page", logs);
         return "logs/list";
     }
 }
@@ -68,6 +68,16 @@ body {
 						</c:forEach>
 					</tbody>
 				</table>
+
+				<ul class="pager">
+					<c:if test="${page.number > 0}">
+						<li class="previous"><a href="<c:url value="/logs"><c:param name="page" value="${page.number - 1}"/><c:param name="size" value="${page.size}"/></c:url>"><spring:message code="log.list.page.previous.label" /></a></li>
+					</c:if>
+					<li><spring:message code="log.list.page.info" arguments="${page.number + 1},${page.totalPages},${page.totalElements}" /></li>
+					<c:if test="${page.number + 1 < page.totalPages}">
+						<li class="next"><a href="<c:url value="/logs"><c:param name="page" value="${page.number + 1}"/><c:param name="size" value="${page.size}"/></c:url>"><spring:message code="log.list.page.next.label" /></a></li>
+					</c:if>
+				</ul>
 			</div>
 		</div>
 